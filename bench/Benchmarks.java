@@ -0,0 +1,393 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks de persistência, CRUD, importação, exportação e agregação do gráfico, com dados
+ * sintéticos reproduzíveis ({@link DadosSinteticos}). Cada caso roda para cada quantidade de
+ * linhas e imprime uma linha no formato do relatório do JMH (tempo por operação, desvio,
+ * operações por segundo, bytes alocados por operação, coletas).
+ *
+ * Os casos gravam transacoes.dat, transacoes.wal e arquivos bench.* no diretório atual (o DAO
+ * sempre usa o diretório atual), então rode em um diretório vazio:
+ *
+ * <pre>
+ * javac -encoding UTF-8 -cp "lib/*" -d out src/*.java
+ * javac -encoding UTF-8 -cp "lib/*:out" -d out-bench bench/*.java
+ * mkdir /tmp/bench &amp;&amp; cd /tmp/bench
+ * java -Xmx4g -cp "$PROJETO/lib/*:$PROJETO/out:$PROJETO/out-bench" Benchmarks --tamanhos 10000,100000 --filtro "dao\..*"
+ * </pre>
+ *
+ * Opções: {@code --tamanhos} (padrão 10000,100000,1000000), {@code --aquecimento} e
+ * {@code --iteracoes} (padrão 3 e 5), {@code --filtro} (expressão regular sobre o nome do caso)
+ * e {@code --semente}. A importação e a exportação de .xlsx precisam do poi-ooxml-lite no classpath.
+ */
+public class Benchmarks {
+
+    // Operações de CRUD por iteração (o tempo é informado por operação)
+    private static final int OPERACOES_POR_LOTE = 1000;
+
+    private static final Path ARQUIVO_DADOS = Paths.get("transacoes.dat");
+    private static final Path ARQUIVO_DIARIO = Paths.get("transacoes.wal");
+    private static final String PREFIXO_SAIDA = "bench.";
+
+    private static long semente = DadosSinteticos.SEMENTE_PADRAO;
+
+    /** Um caso nomeado; a fábrica monta o estado para a quantidade de linhas pedida. */
+    private static final class Definicao {
+        final String nome;
+        final IntFunction<Medicao.Caso> fabrica;
+
+        Definicao(String nome, IntFunction<Medicao.Caso> fabrica) {
+            this.nome = nome;
+            this.fabrica = fabrica;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] tamanhos = {10_000, 100_000, 1_000_000};
+        int aquecimento = 3;
+        int iteracoes = 5;
+        Pattern filtro = Pattern.compile(".*");
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--tamanhos":
+                    String[] partes = args[i + 1].split(",");
+                    tamanhos = new int[partes.length];
+                    for (int j = 0; j < partes.length; j++) {
+                        tamanhos[j] = Integer.parseInt(partes[j].trim());
+                    }
+                    break;
+                case "--aquecimento":
+                    aquecimento = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--iteracoes":
+                    iteracoes = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--filtro":
+                    filtro = Pattern.compile(args[i + 1]);
+                    break;
+                case "--semente":
+                    semente = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+            }
+        }
+
+        if (Files.exists(ARQUIVO_DADOS) || Files.exists(ARQUIVO_DIARIO)) {
+            System.err.println("O diretório atual já tem transacoes.dat ou transacoes.wal; "
+                    + "rode os benchmarks em um diretório vazio para não sobrescrever dados.");
+            System.exit(1);
+        }
+
+        PrintStream out = System.out;
+        out.printf("JVM %s, %d processadores, heap máximo %d MB, semente %d%n",
+                System.getProperty("java.vm.version"), Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().maxMemory() >> 20, semente);
+        out.printf("Aquecimento: %d iterações; medição: %d iterações%n%n", aquecimento, iteracoes);
+        Medicao.imprimirCabecalho(out);
+
+        Medicao medicao = new Medicao(aquecimento, iteracoes);
+        try {
+            for (Definicao definicao : definicoes()) {
+                if (!filtro.matcher(definicao.nome).matches()) {
+                    continue;
+                }
+                for (int tamanho : tamanhos) {
+                    Medicao.Resultado resultado = medicao.medir(definicao.nome, tamanho,
+                            definicao.fabrica.apply(tamanho));
+                    Medicao.imprimir(out, resultado);
+                }
+            }
+        } finally {
+            apagarArquivos();
+        }
+    }
+
+    private static List<Definicao> definicoes() {
+        List<Definicao> definicoes = new ArrayList<>();
+        definicoes.add(new Definicao("arquivo.salvar", Benchmarks::salvar));
+        definicoes.add(new Definicao("dao.carregar.memoria", n -> carregar(n, false)));
+        definicoes.add(new Definicao("dao.carregar.mapeado", n -> carregar(n, true)));
+        definicoes.add(new Definicao("dao.inserir", Benchmarks::inserir));
+        definicoes.add(new Definicao("dao.atualizar", Benchmarks::atualizar));
+        definicoes.add(new Definicao("dao.excluir", Benchmarks::excluir));
+        definicoes.add(new Definicao("excel.importar", Benchmarks::importarExcel));
+        definicoes.add(new Definicao("excel.exportar", Benchmarks::exportarExcel));
+        definicoes.add(new Definicao("pdf.exportar", Benchmarks::exportarPdf));
+        definicoes.add(new Definicao("csv.exportar", Benchmarks::exportarCsv));
+        definicoes.add(new Definicao("grafico.serie", Benchmarks::serieDoGrafico));
+        definicoes.add(new Definicao("grafico.recalculo", Benchmarks::recalculoDoGrafico));
+        return definicoes;
+    }
+
+    // Base de n linhas no transacoes.dat do diretório atual, sem diário pendente
+    private static void gravarBase(int n) throws IOException {
+        apagarArquivos();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(ARQUIVO_DADOS.toFile()), 1 << 16)) {
+            ArquivoTransacoes.escrever(out, new DadosSinteticos(n, semente));
+        }
+    }
+
+    private static void apagarArquivos() throws IOException {
+        Files.deleteIfExists(ARQUIVO_DADOS);
+        Files.deleteIfExists(ARQUIVO_DIARIO);
+        Files.deleteIfExists(Paths.get(ARQUIVO_DADOS + ".tmp"));
+        File[] saidas = new File(".").listFiles((dir, nome) -> nome.startsWith(PREFIXO_SAIDA));
+        if (saidas != null) {
+            for (File saida : saidas) {
+                Files.delete(saida.toPath());
+            }
+        }
+    }
+
+    /** Caso com um DAO em memória aberto sobre uma base de n linhas. */
+    private abstract static class ComDAO implements Medicao.Caso {
+        final int tamanho;
+        TransacaoDAO dao;
+
+        ComDAO(int tamanho) {
+            this.tamanho = tamanho;
+        }
+
+        @Override
+        public void preparar() throws Exception {
+            gravarBase(tamanho);
+            dao = new TransacaoDAO(false);
+        }
+
+        @Override
+        public void encerrar() throws Exception {
+            if (dao != null) {
+                dao.fechar();
+                dao = null;
+            }
+            apagarArquivos();
+        }
+    }
+
+    // Persistência
+
+    private static Medicao.Caso salvar(int n) {
+        return new ComDAO(n) {
+            @Override
+            public long executar() throws IOException {
+                // Mesmo caminho do snapshot do DAO: colunas da tabela em memória gravadas pelo ArquivoTransacoes
+                try (OutputStream out = new BufferedOutputStream(
+                        new FileOutputStream(PREFIXO_SAIDA + "dat"), 1 << 16)) {
+                    ArquivoTransacoes.escrever(out, dao.colunasPorSlot());
+                }
+                return 1;
+            }
+        };
+    }
+
+    private static Medicao.Caso carregar(int n, boolean mapeado) {
+        return new Medicao.Caso() {
+            @Override
+            public void preparar() throws IOException {
+                gravarBase(n);
+            }
+
+            @Override
+            public void prepararIteracao() throws IOException {
+                Files.deleteIfExists(ARQUIVO_DIARIO);
+            }
+
+            @Override
+            public long executar() {
+                TransacaoDAO dao = new TransacaoDAO(mapeado);
+                Medicao.sumidouro = dao.calcularResumo(null, -1);
+                dao.fechar();
+                return 1;
+            }
+
+            @Override
+            public void encerrar() throws IOException {
+                apagarArquivos();
+            }
+        };
+    }
+
+    // CRUD: lotes de OPERACOES_POR_LOTE chamadas individuais (cada uma grava no diário)
+
+    private static Medicao.Caso inserir(int n) {
+        return new ComDAO(n) {
+            final DadosSinteticos novas = new DadosSinteticos(Integer.MAX_VALUE, semente + 1);
+            int proxima;
+            List<Transacao> lote;
+
+            @Override
+            public void prepararIteracao() {
+                lote = novas.transacoes(proxima, proxima + OPERACOES_POR_LOTE);
+                proxima += OPERACOES_POR_LOTE;
+            }
+
+            @Override
+            public long executar() throws IOException {
+                for (Transacao transacao : lote) {
+                    dao.inserir(transacao);
+                }
+                return lote.size();
+            }
+        };
+    }
+
+    private static Medicao.Caso atualizar(int n) {
+        return new ComDAO(n) {
+            final Random sorteio = new Random(semente);
+            final List<Transacao> lote = new ArrayList<>();
+
+            @Override
+            public void prepararIteracao() {
+                lote.clear();
+                for (int i = 0; i < OPERACOES_POR_LOTE; i++) {
+                    Transacao transacao = dao.buscarPorId(1 + sorteio.nextInt(tamanho));
+                    transacao.setValorCentavos(transacao.getValorCentavos() + 1);
+                    // Metade das alterações troca o mês, para mover a linha entre os índices
+                    if (sorteio.nextBoolean()) {
+                        transacao.setData(new Date(transacao.getData().getTime() + 40L * 24 * 60 * 60 * 1000));
+                    }
+                    lote.add(transacao);
+                }
+            }
+
+            @Override
+            public long executar() throws IOException {
+                for (Transacao transacao : lote) {
+                    dao.atualizar(transacao);
+                }
+                return lote.size();
+            }
+        };
+    }
+
+    private static Medicao.Caso excluir(int n) {
+        return new ComDAO(n) {
+            final DadosSinteticos novas = new DadosSinteticos(Integer.MAX_VALUE, semente + 2);
+            int proxima;
+            int[] ids;
+
+            // Repõe as linhas que serão excluídas, para a base manter o tamanho
+            @Override
+            public void prepararIteracao() throws IOException {
+                List<Transacao> lote = novas.transacoes(proxima, proxima + OPERACOES_POR_LOTE);
+                proxima += OPERACOES_POR_LOTE;
+                dao.inserirEmLote(lote);
+                ids = new int[lote.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = lote.get(i).getId();
+                }
+            }
+
+            @Override
+            public long executar() throws IOException {
+                for (int id : ids) {
+                    dao.excluir(id);
+                }
+                return ids.length;
+            }
+        };
+    }
+
+    // Importação e exportação
+
+    private static Medicao.Caso importarExcel(int n) {
+        File planilha = new File(PREFIXO_SAIDA + "importar.xlsx");
+        return new Medicao.Caso() {
+            @Override
+            public void preparar() throws IOException {
+                apagarArquivos();
+                // Layout do importador, com as linhas de resumo de cada mês que ele precisa pular
+                DadosSinteticos.Distribuicao distribuicao = new DadosSinteticos.Distribuicao();
+                distribuicao.cronologica = true;
+                GeradorDados.escreverPlanilha(new DadosSinteticos(n, semente, distribuicao), planilha, true);
+            }
+
+            @Override
+            public long executar() throws IOException {
+                // Operação = linha importada (o resultado é a vazão em linhas por segundo)
+                return ExcelImporter.importarTransacoes(planilha, transacao -> Medicao.sumidouro = transacao);
+            }
+
+            @Override
+            public void encerrar() throws IOException {
+                apagarArquivos();
+            }
+        };
+    }
+
+    private static Medicao.Caso exportarExcel(int n) {
+        return new ComDAO(n) {
+            @Override
+            public long executar() throws IOException {
+                ExcelExporter.exportar(dao.listarTodos(), new File(PREFIXO_SAIDA + "xlsx"));
+                return 1;
+            }
+        };
+    }
+
+    private static Medicao.Caso exportarPdf(int n) {
+        return new ComDAO(n) {
+            @Override
+            public long executar() {
+                if (!PDFExporter.exportar(dao.listarTodos(), PREFIXO_SAIDA + "pdf")) {
+                    throw new IllegalStateException("Falha ao gerar o PDF");
+                }
+                return 1;
+            }
+        };
+    }
+
+    private static Medicao.Caso exportarCsv(int n) {
+        return new ComDAO(n) {
+            @Override
+            public long executar() throws IOException {
+                CSVExporter.exportar(dao.colunasPorSlot(), dao.slotsPorMesEAno(null, -1),
+                        new File(PREFIXO_SAIDA + "csv"), Progresso.NENHUM);
+                return 1;
+            }
+        };
+    }
+
+    // Gráfico: a série mantida pelo DAO contra o recálculo completo que ela evita
+
+    private static Medicao.Caso serieDoGrafico(int n) {
+        return new ComDAO(n) {
+            @Override
+            public long executar() {
+                Medicao.sumidouro = dao.calcularSerieMensal();
+                return 1;
+            }
+        };
+    }
+
+    private static Medicao.Caso recalculoDoGrafico(int n) {
+        return new ComDAO(n) {
+            @Override
+            public long executar() {
+                ArquivoTransacoes.Fonte colunas = dao.colunasPorSlot();
+                AgregadosTransacoes agregados = new AgregadosTransacoes();
+                for (int slot : dao.slotsPorMesEAno(null, -1)) {
+                    agregados.adicionar(colunas.epochDay(slot), colunas.tipo(slot),
+                            colunas.formaPagamento(slot), colunas.centavos(slot));
+                }
+                Medicao.sumidouro = agregados.serieMensal();
+                return 1;
+            }
+        };
+    }
+}
@@ -0,0 +1,181 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Transações sintéticas reproduzíveis para os benchmarks. Cada linha é calculada a partir da
+ * semente e do número da linha (um hash, não uma sequência de Random), então a linha i é
+ * sempre a mesma, qualquer que seja a ordem de leitura, e nada precisa ficar em memória: a
+ * fonte pode ser gravada direto com {@link ArquivoTransacoes#escrever}.
+ *
+ * A {@link Distribuicao} padrão tem datas sorteadas entre 2019 e 2024, 30% de entradas,
+ * valores entre R$ 1,00 e R$ 5.000,00 concentrados nos menores, descrições de um vocabulário
+ * fixo com acentos e observação em 20% das linhas.
+ */
+public class DadosSinteticos implements ArquivoTransacoes.Fonte {
+
+    public static final long SEMENTE_PADRAO = 20240601L;
+
+    /** Parâmetros da geração; os valores iniciais são os usados pelos benchmarks. */
+    public static final class Distribuicao {
+        int anoInicial = 2019;
+        int anoFinal = 2024;
+        int percentualEntradas = 30;
+        long valorMinimo = 100;
+        long valorMaximo = 500_000;
+        // false: produto de dois sorteios, com mais valores pequenos do que grandes
+        boolean valoresUniformes;
+        int percentualObs = 20;
+        int percentualSemData;
+        // Datas em ordem crescente pela linha (como num extrato), em vez de sorteadas
+        boolean cronologica;
+    }
+
+    private static final String[] DESCRICOES = {
+            "Supermercado", "Farmácia São João", "Padaria Pão Quente", "Posto de combustível",
+            "Aluguel", "Salário", "Conta de energia", "Conta de água", "Internet", "Restaurante",
+            "Uber", "Ônibus", "Escola", "Consulta médica", "Academia", "Cinema", "Presente",
+            "Feira", "Cartão de crédito", "Transferência recebida"
+    };
+    private static final String[] FORMAS_PAGAMENTO = {
+            "PIX", "DÉBITO", "CRÉDITO", "DINHEIRO", "TRANSFERÊNCIA", "EM ABERTO"
+    };
+    private static final String[] OBSERVACOES = {
+            "parcela única", "reembolsável", "dividido com a família", "pago com atraso", "nota fiscal"
+    };
+
+    private final int tamanho;
+    private final long semente;
+    private final Distribuicao distribuicao;
+    private final int primeiroDia;
+    private final int dias;
+
+    public DadosSinteticos(int tamanho) {
+        this(tamanho, SEMENTE_PADRAO);
+    }
+
+    public DadosSinteticos(int tamanho, long semente) {
+        this(tamanho, semente, new Distribuicao());
+    }
+
+    public DadosSinteticos(int tamanho, long semente, Distribuicao distribuicao) {
+        if (distribuicao.anoFinal < distribuicao.anoInicial || distribuicao.valorMaximo < distribuicao.valorMinimo) {
+            throw new IllegalArgumentException("Intervalo de anos ou de valores invertido");
+        }
+        this.tamanho = tamanho;
+        this.semente = semente;
+        this.distribuicao = distribuicao;
+        primeiroDia = Datas.epochDay(distribuicao.anoInicial, 1, 1);
+        dias = Datas.epochDay(distribuicao.anoFinal + 1, 1, 1) - primeiroDia;
+    }
+
+    // SplitMix64: bits bem distribuídos para linhas e campos vizinhos
+    private long hash(int linha, int campo) {
+        long z = semente + (((long) linha << 4) | campo) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private int sorteio(int linha, int campo, int limite) {
+        return (int) Long.remainderUnsigned(hash(linha, campo), limite);
+    }
+
+    // Uniforme em [0, 1)
+    private double fracao(int linha, int campo) {
+        return (hash(linha, campo) >>> 11) * 0x1.0p-53;
+    }
+
+    @Override
+    public int tamanho() {
+        return tamanho;
+    }
+
+    @Override
+    public int id(int linha) {
+        return linha + 1;
+    }
+
+    @Override
+    public int epochDay(int linha) {
+        if (sorteio(linha, 7, 100) < distribuicao.percentualSemData) {
+            return Datas.SEM_DATA;
+        }
+        if (distribuicao.cronologica) {
+            return primeiroDia + (int) ((long) linha * dias / tamanho);
+        }
+        return primeiroDia + sorteio(linha, 0, dias);
+    }
+
+    @Override
+    public long centavos(int linha) {
+        double fracao = fracao(linha, 1);
+        if (!distribuicao.valoresUniformes) {
+            fracao *= fracao(linha, 2);
+        }
+        long amplitude = distribuicao.valorMaximo - distribuicao.valorMinimo;
+        return distribuicao.valorMinimo + Math.round(amplitude * fracao);
+    }
+
+    @Override
+    public String tipo(int linha) {
+        return sorteio(linha, 3, 100) < distribuicao.percentualEntradas ? "ENTRADA" : "SAÍDA";
+    }
+
+    @Override
+    public String formaPagamento(int linha) {
+        return FORMAS_PAGAMENTO[sorteio(linha, 4, FORMAS_PAGAMENTO.length)];
+    }
+
+    @Override
+    public String descricao(int linha) {
+        return DESCRICOES[sorteio(linha, 5, DESCRICOES.length)];
+    }
+
+    @Override
+    public String obs(int linha) {
+        if (sorteio(linha, 6, 100) >= distribuicao.percentualObs) {
+            return "";
+        }
+        return OBSERVACOES[sorteio(linha, 8, OBSERVACOES.length)];
+    }
+
+    public Transacao transacao(int linha) {
+        int epochDay = epochDay(linha);
+        Transacao transacao = new Transacao();
+        transacao.setId(id(linha));
+        transacao.setData(epochDay == Datas.SEM_DATA ? null : Datas.paraDate(epochDay));
+        transacao.setTipo(tipo(linha));
+        transacao.setDescricao(descricao(linha));
+        transacao.setValorCentavos(centavos(linha));
+        transacao.setFormaPagamento(formaPagamento(linha));
+        transacao.setObs(obs(linha));
+        return transacao;
+    }
+
+    /** Todas as linhas como lista somente leitura; cada get monta um objeto novo (nada fica guardado). */
+    public List<Transacao> comoLista() {
+        class Visao extends AbstractList<Transacao> implements RandomAccess {
+            @Override
+            public Transacao get(int indice) {
+                return transacao(indice);
+            }
+
+            @Override
+            public int size() {
+                return tamanho;
+            }
+        }
+        return new Visao();
+    }
+
+    /** As linhas de {@code inicio} (inclusive) a {@code fim} (exclusive) como objetos. */
+    public List<Transacao> transacoes(int inicio, int fim) {
+        List<Transacao> transacoes = new ArrayList<>(fim - inicio);
+        for (int linha = inicio; linha < fim; linha++) {
+            transacoes.add(transacao(linha));
+        }
+        return transacoes;
+    }
+}
@@ -0,0 +1,247 @@
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Gera bases sintéticas reproduzíveis ({@link DadosSinteticos}) para testes de carga: o
+ * transacoes.dat do DAO, CSV no formato do {@link CSVExporter} e planilhas .xlsx/.xls no
+ * layout lido pelo {@link ExcelImporter} (data na coluna 0, tipo na 2, descrição na 3, valor
+ * na 4, pagamento na 5 e obs na 6), com o cabeçalho na primeira linha e uma linha de resumo
+ * ("JAN", "FEV", ...) depois de cada mês e "TOTAL" no fim, que o importador deve ignorar.
+ *
+ * Mesma semente e mesmos parâmetros produzem sempre o mesmo arquivo. O .dat e o CSV são
+ * gravados direto das colunas geradas, sem montar objetos Transacao, e o .xlsx passa pelo
+ * SXSSF; só o .xls (HSSF, limitado a 65.536 linhas) fica inteiro em memória.
+ *
+ * <pre>
+ * java -cp "lib/*:out:out-bench" GeradorDados --linhas 10000000 --formato dat --saida /tmp/carga/transacoes.dat
+ * </pre>
+ *
+ * Opções: {@code --linhas}, {@code --formato} (dat, csv, xlsx ou xls), {@code --saida},
+ * {@code --semente}, {@code --anos} (ex.: 2019-2024), {@code --entradas} (% de entradas),
+ * {@code --valores} (ex.: 1.00-5000.00), {@code --valores-uniformes}, {@code --obs} (% com
+ * observação), {@code --sem-data} (% sem data), {@code --datas-sorteadas} (em vez de
+ * cronológicas) e {@code --sobrescrever}.
+ */
+public class GeradorDados {
+
+    private static final String[] MESES = {"JAN", "FEV", "MAR", "ABR", "MAI", "JUN",
+            "JUL", "AGO", "SET", "OUT", "NOV", "DEZ"};
+    private static final String[] CABECALHO = {"DATA", "", "TIPO", "DESCRIÇÃO", "VALOR", "PAGAMENTO", "OBS"};
+
+    public static void main(String[] args) throws IOException {
+        int linhas = 100_000;
+        String formato = "dat";
+        String saida = null;
+        long semente = DadosSinteticos.SEMENTE_PADRAO;
+        boolean sobrescrever = false;
+        DadosSinteticos.Distribuicao distribuicao = new DadosSinteticos.Distribuicao();
+        distribuicao.cronologica = true;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--linhas":
+                    linhas = Integer.parseInt(args[++i].replace("_", ""));
+                    break;
+                case "--formato":
+                    formato = args[++i].toLowerCase();
+                    break;
+                case "--saida":
+                    saida = args[++i];
+                    break;
+                case "--semente":
+                    semente = Long.parseLong(args[++i]);
+                    break;
+                case "--anos":
+                    String[] anos = args[++i].split("-");
+                    distribuicao.anoInicial = Integer.parseInt(anos[0]);
+                    distribuicao.anoFinal = Integer.parseInt(anos[anos.length - 1]);
+                    break;
+                case "--entradas":
+                    distribuicao.percentualEntradas = Integer.parseInt(args[++i]);
+                    break;
+                case "--valores":
+                    String[] valores = args[++i].split("-");
+                    distribuicao.valorMinimo = Moeda.converter(valores[0]);
+                    distribuicao.valorMaximo = Moeda.converter(valores[valores.length - 1]);
+                    break;
+                case "--valores-uniformes":
+                    distribuicao.valoresUniformes = true;
+                    break;
+                case "--obs":
+                    distribuicao.percentualObs = Integer.parseInt(args[++i]);
+                    break;
+                case "--sem-data":
+                    distribuicao.percentualSemData = Integer.parseInt(args[++i]);
+                    break;
+                case "--datas-sorteadas":
+                    distribuicao.cronologica = false;
+                    break;
+                case "--sobrescrever":
+                    sobrescrever = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+            }
+        }
+
+        File destino = new File(saida != null ? saida : "sinteticos_" + linhas + "." + formato);
+        if (destino.exists() && !sobrescrever) {
+            System.err.println(destino + " já existe (use --sobrescrever para substituir)");
+            System.exit(1);
+        }
+
+        DadosSinteticos dados = new DadosSinteticos(linhas, semente, distribuicao);
+        long inicio = System.nanoTime();
+        switch (formato) {
+            case "dat":
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(destino), 1 << 16)) {
+                    ArquivoTransacoes.escrever(out, dados);
+                }
+                break;
+            case "csv":
+                int[] todas = new int[linhas];
+                for (int i = 0; i < linhas; i++) {
+                    todas[i] = i;
+                }
+                CSVExporter.exportar(dados, todas, destino, Progresso.NENHUM);
+                break;
+            case "xlsx":
+                escreverPlanilha(dados, destino, true);
+                break;
+            case "xls":
+                escreverPlanilha(dados, destino, false);
+                break;
+            default:
+                throw new IllegalArgumentException("Formato desconhecido: " + formato + " (use dat, csv, xlsx ou xls)");
+        }
+        System.out.printf("%d linhas em %.1f s: %s (%d MB)%n", linhas, (System.nanoTime() - inicio) / 1e9,
+                destino, destino.length() >> 20);
+    }
+
+    /**
+     * Planilha de uma aba no layout do {@link ExcelImporter}, na ordem das linhas de
+     * {@code dados}; as linhas de resumo separam os meses conforme as datas aparecem (com
+     * datas cronológicas, uma por mês). Linhas sem data ficam com a célula vazia, como nas
+     * planilhas em que a data só é preenchida na primeira linha do dia.
+     *
+     * @throws IllegalArgumentException se as linhas (com cabeçalho e resumos) não couberem em uma aba
+     */
+    public static void escreverPlanilha(DadosSinteticos dados, File destino, boolean xlsx) throws IOException {
+        SpreadsheetVersion versao = xlsx ? SpreadsheetVersion.EXCEL2007 : SpreadsheetVersion.EXCEL97;
+        if (dados.tamanho() + 2 > versao.getMaxRows()) {
+            throw new IllegalArgumentException("Uma aba " + (xlsx ? ".xlsx" : ".xls") + " comporta até "
+                    + versao.getMaxRows() + " linhas e o importador lê só a primeira aba");
+        }
+
+        boolean concluido = false;
+        Workbook workbook = xlsx ? new SXSSFWorkbook(null, 100, true, false) : new HSSFWorkbook();
+        try {
+            // Estilo explícito em toda célula (sem ele o SXSSF consulta o estilo da coluna a cada célula)
+            CellStyle padrao = workbook.getCellStyleAt(0);
+            CellStyle estiloData = workbook.createCellStyle();
+            estiloData.setDataFormat(workbook.createDataFormat().getFormat("dd/mm/yyyy"));
+            CellStyle estiloValor = workbook.createCellStyle();
+            estiloValor.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+
+            Sheet aba = workbook.createSheet("Lançamentos");
+            Row cabecalho = aba.createRow(0);
+            for (int i = 0; i < CABECALHO.length; i++) {
+                texto(cabecalho, i, CABECALHO[i], padrao);
+            }
+
+            int proximaLinha = 1;
+            int mesAtual = Integer.MIN_VALUE;
+            long saldoMes = 0;
+            long saldoTotal = 0;
+            for (int i = 0; i < dados.tamanho(); i++) {
+                int epochDay = dados.epochDay(i);
+                int epochMes = epochDay == Datas.SEM_DATA ? mesAtual : Datas.epochMes(epochDay);
+                if (epochMes != mesAtual) {
+                    if (mesAtual != Integer.MIN_VALUE) {
+                        proximaLinha = resumo(aba, proximaLinha, versao, MESES[Datas.mes(mesAtual) - 1],
+                                saldoMes, padrao, estiloValor);
+                    }
+                    mesAtual = epochMes;
+                    saldoMes = 0;
+                }
+
+                if (proximaLinha >= versao.getMaxRows()) {
+                    throw new IllegalArgumentException("As linhas de resumo passaram do limite de "
+                            + versao.getMaxRows() + " linhas da aba");
+                }
+                Row linha = aba.createRow(proximaLinha++);
+                if (epochDay != Datas.SEM_DATA) {
+                    Cell data = linha.createCell(0);
+                    data.setCellValue(Datas.paraDate(epochDay));
+                    data.setCellStyle(estiloData);
+                }
+                String tipo = dados.tipo(i);
+                texto(linha, 2, tipo, padrao);
+                texto(linha, 3, dados.descricao(i), padrao);
+                Cell valor = linha.createCell(4);
+                valor.setCellValue(Moeda.paraDouble(dados.centavos(i)));
+                valor.setCellStyle(estiloValor);
+                texto(linha, 5, dados.formaPagamento(i), padrao);
+                texto(linha, 6, dados.obs(i), padrao);
+
+                long sinal = "ENTRADA".equals(tipo) ? 1 : -1;
+                saldoMes += sinal * dados.centavos(i);
+                saldoTotal += sinal * dados.centavos(i);
+            }
+            if (mesAtual != Integer.MIN_VALUE) {
+                proximaLinha = resumo(aba, proximaLinha, versao, MESES[Datas.mes(mesAtual) - 1],
+                        saldoMes, padrao, estiloValor);
+            }
+            resumo(aba, proximaLinha, versao, "TOTAL", saldoTotal, padrao, estiloValor);
+
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(destino))) {
+                workbook.write(out);
+            }
+            concluido = true;
+        } finally {
+            if (workbook instanceof SXSSFWorkbook) {
+                ((SXSSFWorkbook) workbook).dispose();
+            }
+            workbook.close();
+            if (!concluido) {
+                destino.delete();
+            }
+        }
+    }
+
+    // Linha de resumo: rótulo na coluna 0 (o que o importador reconhece) e o saldo na coluna do valor
+    private static int resumo(Sheet aba, int numero, SpreadsheetVersion versao, String rotulo, long saldo,
+                              CellStyle padrao, CellStyle estiloValor) {
+        if (numero >= versao.getMaxRows()) {
+            throw new IllegalArgumentException("As linhas de resumo passaram do limite de "
+                    + versao.getMaxRows() + " linhas da aba");
+        }
+        Row linha = aba.createRow(numero);
+        texto(linha, 0, rotulo, padrao);
+        texto(linha, 3, "Saldo", padrao);
+        Cell valor = linha.createCell(4);
+        valor.setCellValue(Moeda.paraDouble(saldo));
+        valor.setCellStyle(estiloValor);
+        return numero + 1;
+    }
+
+    private static void texto(Row linha, int coluna, String texto, CellStyle estilo) {
+        if (texto != null && !texto.isEmpty()) {
+            Cell celula = linha.createCell(coluna);
+            celula.setCellValue(texto);
+            celula.setCellStyle(estilo);
+        }
+    }
+}
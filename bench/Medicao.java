@@ -0,0 +1,278 @@
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executa um caso de benchmark no modelo do JMH: iterações de aquecimento (descartadas, para o
+ * JIT compilar os caminhos quentes) seguidas das iterações medidas. De cada iteração medida
+ * saem o tempo por operação, a memória alocada por operação e as coletas de lixo, como no
+ * profiler "gc" do JMH.
+ *
+ * A alocação é medida de dois jeitos e vale o maior. Pelo heap: uso no fim menos no início,
+ * mais tudo o que as coletas liberaram no meio (avisos de GC do MXBean); entram aí também os
+ * threads dos pools do importador e do PDF, que terminam antes do fim da iteração, mas o G1
+ * conta o eden por regiões e iterações que alocam pouco aparecem como zero. Por thread: exato,
+ * mas só para os threads vivos na leitura final.
+ */
+public class Medicao {
+
+    /** Um benchmark com seu estado; {@link #executar} é a parte medida. */
+    public interface Caso {
+        /** Uma vez, antes do aquecimento (ex.: gerar o arquivo de entrada). */
+        default void preparar() throws Exception {
+        }
+
+        /** Antes de cada iteração, fora da medição. */
+        default void prepararIteracao() throws Exception {
+        }
+
+        /** Executa uma iteração e devolve quantas operações foram feitas nela. */
+        long executar() throws Exception;
+
+        /** Uma vez, no fim (fechar o DAO, apagar arquivos). */
+        default void encerrar() throws Exception {
+        }
+    }
+
+    /** Estatísticas das iterações medidas de um caso. */
+    public static final class Resultado {
+        final String nome;
+        final int tamanho;
+        final double[] nanosPorOperacao;
+        final double bytesPorOperacao;
+        final long coletas;
+        final long milisGc;
+
+        Resultado(String nome, int tamanho, double[] nanosPorOperacao, double bytesPorOperacao,
+                  long coletas, long milisGc) {
+            this.nome = nome;
+            this.tamanho = tamanho;
+            this.nanosPorOperacao = nanosPorOperacao;
+            this.bytesPorOperacao = bytesPorOperacao;
+            this.coletas = coletas;
+            this.milisGc = milisGc;
+        }
+
+        double media() {
+            double soma = 0;
+            for (double valor : nanosPorOperacao) {
+                soma += valor;
+            }
+            return soma / nanosPorOperacao.length;
+        }
+
+        double desvio() {
+            if (nanosPorOperacao.length < 2) {
+                return 0;
+            }
+            double media = media();
+            double soma = 0;
+            for (double valor : nanosPorOperacao) {
+                soma += (valor - media) * (valor - media);
+            }
+            return Math.sqrt(soma / (nanosPorOperacao.length - 1));
+        }
+    }
+
+    /** Destino dos resultados que o JIT não pode descartar como código morto. */
+    public static volatile Object sumidouro;
+
+    private static final PrintStream DESCARTE = new PrintStream(OutputStream.nullOutputStream());
+    private static final MedidorHeap MEDIDOR = new MedidorHeap();
+
+    private final int aquecimento;
+    private final int iteracoes;
+
+    public Medicao(int aquecimento, int iteracoes) {
+        this.aquecimento = aquecimento;
+        this.iteracoes = iteracoes;
+    }
+
+    /**
+     * Roda o caso. A saída padrão fica silenciada enquanto o código medido roda: o texto
+     * continua sendo montado (o custo entra na medição), mas não depende do terminal.
+     */
+    public Resultado medir(String nome, int tamanho, Caso caso) throws Exception {
+        PrintStream saida = System.out;
+        System.setOut(DESCARTE);
+        try {
+            caso.preparar();
+            for (int i = 0; i < aquecimento; i++) {
+                caso.prepararIteracao();
+                caso.executar();
+            }
+
+            double[] nanosPorOperacao = new double[iteracoes];
+            double bytes = 0;
+            long operacoesTotais = 0;
+            long coletas = 0;
+            long milisGc = 0;
+            for (int i = 0; i < iteracoes; i++) {
+                caso.prepararIteracao();
+                System.gc();
+                MedidorHeap.Leitura antes = MEDIDOR.ler();
+                long inicio = System.nanoTime();
+                long operacoes = caso.executar();
+                long nanos = System.nanoTime() - inicio;
+                MedidorHeap.Leitura depois = MEDIDOR.ler();
+
+                operacoes = Math.max(operacoes, 1);
+                nanosPorOperacao[i] = (double) nanos / operacoes;
+                bytes += depois.alocadoDesde(antes);
+                operacoesTotais += operacoes;
+                coletas += depois.coletas - antes.coletas;
+                milisGc += depois.milisGc - antes.milisGc;
+            }
+            return new Resultado(nome, tamanho, nanosPorOperacao, bytes / operacoesTotais, coletas, milisGc);
+        } finally {
+            try {
+                caso.encerrar();
+            } finally {
+                System.setOut(saida);
+            }
+        }
+    }
+
+    public static void imprimirCabecalho(PrintStream out) {
+        out.printf("%-26s %9s %4s %14s %12s %6s %14s %12s %6s %8s%n",
+                "Benchmark", "Linhas", "Iter", "Tempo", "Desvio", "", "op/s", "Aloc. B/op", "GCs", "GC ms");
+    }
+
+    public static void imprimir(PrintStream out, Resultado resultado) {
+        double media = resultado.media();
+        double desvio = resultado.desvio();
+        // Unidade conforme a grandeza, como o JMH faz com @OutputTimeUnit
+        double divisor;
+        String unidade;
+        if (media >= 1e6) {
+            divisor = 1e6;
+            unidade = "ms/op";
+        } else if (media >= 1e3) {
+            divisor = 1e3;
+            unidade = "us/op";
+        } else {
+            divisor = 1;
+            unidade = "ns/op";
+        }
+        out.printf("%-26s %9d %4d %14.3f %12.3f %6s %14.1f %12.0f %6d %8d%n",
+                resultado.nome, resultado.tamanho, resultado.nanosPorOperacao.length,
+                media / divisor, desvio / divisor, unidade, 1e9 / media,
+                resultado.bytesPorOperacao, resultado.coletas, resultado.milisGc);
+    }
+
+    /** Memória alocada no heap até agora, pelos avisos de fim de coleta. */
+    private static final class MedidorHeap implements NotificationListener {
+
+        static final class Leitura {
+            final long alocado;
+            final Map<Long, Long> alocadoPorThread;
+            final long coletas;
+            final long milisGc;
+
+            Leitura(long alocado, Map<Long, Long> alocadoPorThread, long coletas, long milisGc) {
+                this.alocado = alocado;
+                this.alocadoPorThread = alocadoPorThread;
+                this.coletas = coletas;
+                this.milisGc = milisGc;
+            }
+
+            /** Bytes alocados desde a leitura {@code anterior}. */
+            long alocadoDesde(Leitura anterior) {
+                long porThreads = 0;
+                for (Map.Entry<Long, Long> thread : alocadoPorThread.entrySet()) {
+                    porThreads += thread.getValue() - anterior.alocadoPorThread.getOrDefault(thread.getKey(), 0L);
+                }
+                return Math.max(alocado - anterior.alocado, porThreads);
+            }
+        }
+
+        private final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        private final List<GarbageCollectorMXBean> coletores = ManagementFactory.getGarbageCollectorMXBeans();
+        private final List<MemoryPoolMXBean> areas = ManagementFactory.getMemoryPoolMXBeans();
+        private final Set<String> areasDoHeap = new HashSet<>();
+        private final AtomicLong liberado = new AtomicLong();
+        private final AtomicLong avisos = new AtomicLong();
+
+        MedidorHeap() {
+            for (MemoryPoolMXBean area : areas) {
+                if (area.getType() == MemoryType.HEAP) {
+                    areasDoHeap.add(area.getName());
+                }
+            }
+            for (GarbageCollectorMXBean coletor : coletores) {
+                ((NotificationEmitter) coletor).addNotificationListener(this, null, null);
+            }
+        }
+
+        @Override
+        public void handleNotification(Notification aviso, Object contexto) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(aviso.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) aviso.getUserData());
+            long antes = soma(info.getGcInfo().getMemoryUsageBeforeGc());
+            long depois = soma(info.getGcInfo().getMemoryUsageAfterGc());
+            liberado.addAndGet(antes - depois);
+            avisos.incrementAndGet();
+        }
+
+        // Só as áreas do heap (os avisos trazem também metaspace e code cache)
+        private long soma(Map<String, MemoryUsage> usoPorArea) {
+            long total = 0;
+            for (Map.Entry<String, MemoryUsage> area : usoPorArea.entrySet()) {
+                if (areasDoHeap.contains(area.getKey())) {
+                    total += area.getValue().getUsed();
+                }
+            }
+            return total;
+        }
+
+        Leitura ler() throws InterruptedException {
+            long coletas = 0;
+            long milisGc = 0;
+            for (GarbageCollectorMXBean coletor : coletores) {
+                coletas += Math.max(coletor.getCollectionCount(), 0);
+                milisGc += Math.max(coletor.getCollectionTime(), 0);
+            }
+            // Os avisos chegam em outro thread logo depois de cada coleta; espera até um segundo por eles
+            for (int i = 0; i < 100 && avisos.get() < coletas; i++) {
+                Thread.sleep(10);
+            }
+
+            long emUso = 0;
+            for (MemoryPoolMXBean area : areas) {
+                if (area.getType() == MemoryType.HEAP) {
+                    emUso += area.getUsage().getUsed();
+                }
+            }
+            Map<Long, Long> alocadoPorThread = new HashMap<>();
+            long[] ids = threads.getAllThreadIds();
+            long[] alocados = threads.getThreadAllocatedBytes(ids);
+            for (int i = 0; i < ids.length; i++) {
+                if (alocados[i] >= 0) {
+                    alocadoPorThread.put(ids[i], alocados[i]);
+                }
+            }
+            return new Leitura(emUso + liberado.get(), alocadoPorThread, coletas, milisGc);
+        }
+    }
+}
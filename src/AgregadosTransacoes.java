@@ -0,0 +1,198 @@
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Totais acumulados por (mês, tipo, forma de pagamento), atualizados a cada inclusão,
+ * alteração ou exclusão no DAO. As consultas percorrem só os meses/células existentes,
+ * nunca as transações.
+ *
+ * Tipo e forma de pagamento são agrupados sem diferenciar maiúsculas de minúsculas,
+ * como nos filtros do DAO; "ENTRADA" conta como entrada e qualquer outro tipo como saída.
+ */
+public class AgregadosTransacoes {
+
+    // Linhas sem data
+    private static final int SEM_MES = Integer.MIN_VALUE;
+
+    /** Totais de um período, em centavos. */
+    public static class Resumo {
+        private long entradas;
+        private long saidas;
+        private int quantidade;
+
+        public long getEntradas() { return entradas; }
+        public long getSaidas() { return saidas; }
+        public long getSaldo() { return entradas - saidas; }
+        public int getQuantidade() { return quantidade; }
+
+        private void somar(Resumo outro) {
+            entradas += outro.entradas;
+            saidas += outro.saidas;
+            quantidade += outro.quantidade;
+        }
+    }
+
+    private static class Celula {
+        long centavos;
+        int quantidade;
+    }
+
+    private static class Mes {
+        final Resumo resumo = new Resumo();
+        // tipo -> forma de pagamento -> total
+        final Map<String, Map<String, Celula>> celulas = new HashMap<>();
+    }
+
+    private final TreeMap<Integer, Mes> meses = new TreeMap<>();
+    private final Map<String, String> normalizados = new HashMap<>();
+    // Os mesmos totais por mês em arrays, para o gráfico
+    private final SerieMensal serie = new SerieMensal();
+
+    public void adicionar(int epochDay, String tipo, String formaPagamento, long centavos) {
+        aplicar(epochDay, tipo, formaPagamento, centavos, 1);
+    }
+
+    public void remover(int epochDay, String tipo, String formaPagamento, long centavos) {
+        aplicar(epochDay, tipo, formaPagamento, -centavos, -1);
+    }
+
+    private void aplicar(int epochDay, String tipo, String formaPagamento, long centavos, int quantidade) {
+        int chave = epochDay == Datas.SEM_DATA ? SEM_MES : Datas.epochMes(epochDay);
+        Mes mes = meses.computeIfAbsent(chave, k -> new Mes());
+
+        String tipoNormalizado = normalizar(tipo);
+        boolean entrada = "ENTRADA".equals(tipoNormalizado);
+        if (entrada) {
+            mes.resumo.entradas += centavos;
+        } else {
+            mes.resumo.saidas += centavos;
+        }
+        mes.resumo.quantidade += quantidade;
+        if (chave != SEM_MES) {
+            serie.somar(chave, entrada, centavos, quantidade);
+        }
+
+        Map<String, Celula> porForma = mes.celulas.computeIfAbsent(tipoNormalizado, k -> new HashMap<>());
+        String formaNormalizada = normalizar(formaPagamento);
+        Celula celula = porForma.computeIfAbsent(formaNormalizada, k -> new Celula());
+        celula.centavos += centavos;
+        celula.quantidade += quantidade;
+
+        if (celula.quantidade == 0) {
+            porForma.remove(formaNormalizada);
+            if (porForma.isEmpty()) {
+                mes.celulas.remove(tipoNormalizado);
+            }
+        }
+        if (mes.resumo.quantidade == 0) {
+            meses.remove(chave);
+        }
+    }
+
+    // Os textos vêm quase sempre dos mesmos poucos valores; evita um toUpperCase por linha
+    private String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String normalizado = normalizados.get(texto);
+        if (normalizado == null) {
+            normalizado = texto.toUpperCase(Locale.ROOT);
+            normalizados.put(texto, normalizado);
+        }
+        return normalizado;
+    }
+
+    // Consultas
+
+    /** Totais do mês e/ou ano ({@code mes} nulo e {@code ano} -1 significam "todos"). */
+    public Resumo resumo(Integer mes, int ano) {
+        Resumo total = new Resumo();
+        for (Map.Entry<Integer, Mes> entrada : selecionar(mes, ano).entrySet()) {
+            total.somar(entrada.getValue().resumo);
+        }
+        return total;
+    }
+
+    /** Total de um tipo em centavos, opcionalmente restrito a um mês do calendário (qualquer ano). */
+    public long totalPorTipo(String tipo, Integer mes) {
+        String tipoNormalizado = normalizar(tipo);
+        long total = 0;
+        for (Map.Entry<Integer, Mes> entrada : selecionar(mes, -1).entrySet()) {
+            Map<String, Celula> porForma = entrada.getValue().celulas.get(tipoNormalizado);
+            if (porForma != null) {
+                for (Celula celula : porForma.values()) {
+                    total += celula.centavos;
+                }
+            }
+        }
+        return total;
+    }
+
+    /** Total em centavos por forma de pagamento (normalizada em maiúsculas) no período. */
+    public Map<String, Long> totaisPorFormaPagamento(Integer mes, int ano) {
+        Map<String, Long> totais = new TreeMap<>();
+        for (Mes m : selecionar(mes, ano).values()) {
+            for (Map<String, Celula> porForma : m.celulas.values()) {
+                for (Map.Entry<String, Celula> celula : porForma.entrySet()) {
+                    totais.merge(celula.getKey(), celula.getValue().centavos, Long::sum);
+                }
+            }
+        }
+        return totais;
+    }
+
+    /**
+     * Totais de um conjunto arbitrário de linhas (ex.: resultado de uma busca por texto), que
+     * não corresponde a nenhum período; aqui as linhas precisam ser percorridas.
+     */
+    public Resumo resumo(ArquivoTransacoes.Fonte colunas, int[] linhas) {
+        Resumo total = new Resumo();
+        for (int linha : linhas) {
+            if ("ENTRADA".equals(normalizar(colunas.tipo(linha)))) {
+                total.entradas += colunas.centavos(linha);
+            } else {
+                total.saidas += colunas.centavos(linha);
+            }
+        }
+        total.quantidade = linhas.length;
+        return total;
+    }
+
+    /** Resumo de cada mês com movimento, em ordem cronológica (chave = {@link Datas#epochMes}). */
+    public Map<Integer, Resumo> resumoPorMes() {
+        Map<Integer, Resumo> resultado = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Mes> entrada : meses.tailMap(SEM_MES, false).entrySet()) {
+            Resumo copia = new Resumo();
+            copia.somar(entrada.getValue().resumo);
+            resultado.put(entrada.getKey(), copia);
+        }
+        return resultado;
+    }
+
+    /** Cópia das entradas e saídas por mês, sem as linhas sem data (custo proporcional ao número de meses). */
+    public SerieMensal serieMensal() {
+        return serie.copia();
+    }
+
+    private Map<Integer, Mes> selecionar(Integer mes, int ano) {
+        if (mes == null && ano == -1) {
+            return meses;
+        }
+        if (ano != -1 && mes != null) {
+            return meses.subMap(Datas.epochMes(ano, mes), true, Datas.epochMes(ano, mes), true);
+        }
+        if (ano != -1) {
+            return meses.subMap(Datas.epochMes(ano, 1), true, Datas.epochMes(ano, 12), true);
+        }
+        Map<Integer, Mes> doMes = new TreeMap<>();
+        for (Map.Entry<Integer, Mes> entrada : meses.tailMap(SEM_MES, false).entrySet()) {
+            if (Datas.mes(entrada.getKey()) == mes) {
+                doMes.put(entrada.getKey(), entrada.getValue());
+            }
+        }
+        return doMes;
+    }
+}
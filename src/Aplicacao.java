@@ -1,5 +1,3 @@
-import java.util.List;
-
 public class Aplicacao {
 
     public static void main(String[] args) {
@@ -9,7 +7,6 @@ public class Aplicacao {
 
     private void abrirGraficoComparativo() {
         TransacaoDAO transacaoDAO = new TransacaoDAO();
-        List<Transacao> transacoes = transacaoDAO.listarTodos();
-        GraficoComparativo.exibirGrafico(transacoes);
+        GraficoComparativo.exibirGrafico(transacaoDAO);
     }
 }
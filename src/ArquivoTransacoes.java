@@ -0,0 +1,311 @@
+import java.io.BufferedInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formato binário colunar do transacoes.dat.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   magic "TXNB" | versão short | linhas int
+ *   dicionário de tipos (int qtd + [int tamanho + UTF-8]) | dicionário de formas de pagamento (idem)
+ *   id int[n] | data int[n] (epoch-day) | valor long[n] (centavos)
+ *   tipo short[n] | forma short[n] (códigos do dicionário, -1 = nulo) | nulos byte[n]
+ *   início da descrição int[n+1] | início da obs int[n+1] | tamanho do heap int | heap UTF-8
+ * </pre>
+ * As colunas têm largura fixa, então a posição de qualquer campo é calculada direto a partir
+ * do número da linha. O formato antigo (serialização Java de List&lt;Transacao&gt;) ainda é lido
+ * para migração, com um filtro que só aceita as classes esperadas.
+ */
+public final class ArquivoTransacoes {
+
+    public static final int MAGIC = 0x54584E42; // "TXNB"
+    public static final short VERSAO = 1;
+
+    private static final byte DESCRICAO_NULA = 1;
+    private static final byte OBS_NULA = 2;
+
+    private ArquivoTransacoes() {
+    }
+
+    /** Acesso por linha aos dados que serão gravados no arquivo. */
+    public interface Fonte {
+        int tamanho();
+        int id(int linha);
+        int epochDay(int linha);
+        long centavos(int linha);
+        String tipo(int linha);
+        String formaPagamento(int linha);
+        String descricao(int linha);
+        String obs(int linha);
+    }
+
+    public static Fonte deLista(List<Transacao> transacoes) {
+        return new Fonte() {
+            public int tamanho() { return transacoes.size(); }
+            public int id(int linha) { return transacoes.get(linha).getId(); }
+            public int epochDay(int linha) { return Datas.paraEpochDay(transacoes.get(linha).getData()); }
+            public long centavos(int linha) { return transacoes.get(linha).getValorCentavos(); }
+            public String tipo(int linha) { return transacoes.get(linha).getTipo(); }
+            public String formaPagamento(int linha) { return transacoes.get(linha).getFormaPagamento(); }
+            public String descricao(int linha) { return transacoes.get(linha).getDescricao(); }
+            public String obs(int linha) { return transacoes.get(linha).getObs(); }
+        };
+    }
+
+    // Escrita
+
+    public static void escrever(OutputStream destino, Fonte fonte) throws IOException {
+        int n = fonte.tamanho();
+        DataOutputStream out = new DataOutputStream(destino);
+
+        Map<String, Integer> codigosTipo = new HashMap<>();
+        Map<String, Integer> codigosForma = new HashMap<>();
+        List<String> tipos = new ArrayList<>();
+        List<String> formas = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            codificar(fonte.tipo(i), codigosTipo, tipos);
+            codificar(fonte.formaPagamento(i), codigosForma, formas);
+        }
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSAO);
+        out.writeInt(n);
+        escreverDicionario(out, tipos);
+        escreverDicionario(out, formas);
+
+        for (int i = 0; i < n; i++) out.writeInt(fonte.id(i));
+        for (int i = 0; i < n; i++) out.writeInt(fonte.epochDay(i));
+        for (int i = 0; i < n; i++) out.writeLong(fonte.centavos(i));
+        for (int i = 0; i < n; i++) out.writeShort(codigo(fonte.tipo(i), codigosTipo));
+        for (int i = 0; i < n; i++) out.writeShort(codigo(fonte.formaPagamento(i), codigosForma));
+        for (int i = 0; i < n; i++) {
+            int nulos = (fonte.descricao(i) == null ? DESCRICAO_NULA : 0) | (fonte.obs(i) == null ? OBS_NULA : 0);
+            out.writeByte(nulos);
+        }
+
+        // Os dois conjuntos de textos dividem o mesmo heap: primeiro todas as descrições, depois as obs
+        int posicao = 0;
+        for (int i = 0; i < n; i++) {
+            out.writeInt(posicao);
+            posicao += tamanhoUtf8(fonte.descricao(i));
+        }
+        out.writeInt(posicao);
+        for (int i = 0; i < n; i++) {
+            out.writeInt(posicao);
+            posicao += tamanhoUtf8(fonte.obs(i));
+        }
+        out.writeInt(posicao);
+
+        out.writeInt(posicao);
+        for (int i = 0; i < n; i++) escreverUtf8(out, fonte.descricao(i));
+        for (int i = 0; i < n; i++) escreverUtf8(out, fonte.obs(i));
+        out.flush();
+    }
+
+    private static void codificar(String valor, Map<String, Integer> codigos, List<String> dicionario) {
+        if (valor != null && !codigos.containsKey(valor)) {
+            if (dicionario.size() >= Short.MAX_VALUE) {
+                throw new IllegalStateException("Dicionário excedeu " + Short.MAX_VALUE + " valores distintos");
+            }
+            codigos.put(valor, dicionario.size());
+            dicionario.add(valor);
+        }
+    }
+
+    private static int codigo(String valor, Map<String, Integer> codigos) {
+        return valor == null ? -1 : codigos.get(valor);
+    }
+
+    private static void escreverDicionario(DataOutputStream out, List<String> dicionario) throws IOException {
+        out.writeInt(dicionario.size());
+        for (String valor : dicionario) {
+            byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static void escreverUtf8(DataOutputStream out, String texto) throws IOException {
+        if (texto != null && !texto.isEmpty()) {
+            out.write(texto.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // Mesmo tamanho que String.getBytes(UTF_8) produziria, sem alocar o array
+    static int tamanhoUtf8(String texto) {
+        if (texto == null) {
+            return 0;
+        }
+        int tamanho = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c < 0x80) {
+                tamanho++;
+            } else if (c < 0x800) {
+                tamanho += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < texto.length()
+                    && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                tamanho += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                tamanho++; // substituído por '?'
+            } else {
+                tamanho += 3;
+            }
+        }
+        return tamanho;
+    }
+
+    // Leitura
+
+    public static boolean ehFormatoBinario(Path arquivo) throws IOException {
+        try (InputStream in = new FileInputStream(arquivo.toFile())) {
+            byte[] cabecalho = in.readNBytes(4);
+            return cabecalho.length == 4 && ByteBuffer.wrap(cabecalho).getInt() == MAGIC;
+        }
+    }
+
+    /** Lê o formato antigo (List&lt;Transacao&gt; serializada) para migração. */
+    @SuppressWarnings("unchecked")
+    public static List<Transacao> lerLegado(Path arquivo) throws IOException {
+        ObjectInputFilter filtro = ObjectInputFilter.Config.createFilter(
+                "java.util.ArrayList;java.util.Date;Transacao;java.lang.Object;maxdepth=5;!*");
+
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(arquivo.toFile())))) {
+            ois.setObjectInputFilter(filtro);
+            return new ArrayList<>((List<Transacao>) ois.readObject());
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Arquivo legado inválido: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Leitura colunar sobre um buffer com o conteúdo do arquivo (em memória ou mapeado).
+     * Cada campo é decodificado só quando pedido.
+     */
+    public static final class Leitor {
+        private final ByteBuffer buffer;
+        private final int linhas;
+        private final String[] tipos;
+        private final String[] formas;
+        private final int inicioIds;
+        private final int inicioDatas;
+        private final int inicioValores;
+        private final int inicioTipos;
+        private final int inicioFormas;
+        private final int inicioNulos;
+        private final int inicioOffsetsDescricao;
+        private final int inicioOffsetsObs;
+        private final int inicioHeap;
+
+        public Leitor(ByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+            ByteBuffer cabecalho = buffer.duplicate();
+            if (cabecalho.remaining() < 10 || cabecalho.getInt() != MAGIC) {
+                throw new IOException("Arquivo de transações em formato desconhecido");
+            }
+            short versao = cabecalho.getShort();
+            if (versao != VERSAO) {
+                throw new IOException("Versão do arquivo de transações não suportada: " + versao);
+            }
+            linhas = cabecalho.getInt();
+            tipos = lerDicionario(cabecalho);
+            formas = lerDicionario(cabecalho);
+
+            inicioIds = cabecalho.position();
+            inicioDatas = inicioIds + 4 * linhas;
+            inicioValores = inicioDatas + 4 * linhas;
+            inicioTipos = inicioValores + 8 * linhas;
+            inicioFormas = inicioTipos + 2 * linhas;
+            inicioNulos = inicioFormas + 2 * linhas;
+            inicioOffsetsDescricao = inicioNulos + linhas;
+            inicioOffsetsObs = inicioOffsetsDescricao + 4 * (linhas + 1);
+            int posicaoTamanhoHeap = inicioOffsetsObs + 4 * (linhas + 1);
+            inicioHeap = posicaoTamanhoHeap + 4;
+
+            if (inicioHeap > buffer.limit() || inicioHeap + buffer.getInt(posicaoTamanhoHeap) > buffer.limit()) {
+                throw new IOException("Arquivo de transações truncado");
+            }
+        }
+
+        private static String[] lerDicionario(ByteBuffer origem) {
+            int quantidade = origem.getInt();
+            String[] valores = new String[quantidade];
+            for (int i = 0; i < quantidade; i++) {
+                byte[] bytes = new byte[origem.getInt()];
+                origem.get(bytes);
+                valores[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return valores;
+        }
+
+        public int tamanho() { return linhas; }
+
+        public int id(int linha) { return buffer.getInt(inicioIds + 4 * linha); }
+
+        public int epochDay(int linha) { return buffer.getInt(inicioDatas + 4 * linha); }
+
+        public long centavos(int linha) { return buffer.getLong(inicioValores + 8 * linha); }
+
+        public String tipo(int linha) {
+            int codigo = buffer.getShort(inicioTipos + 2 * linha);
+            return codigo < 0 ? null : tipos[codigo];
+        }
+
+        public String formaPagamento(int linha) {
+            int codigo = buffer.getShort(inicioFormas + 2 * linha);
+            return codigo < 0 ? null : formas[codigo];
+        }
+
+        public String descricao(int linha) {
+            if ((buffer.get(inicioNulos + linha) & DESCRICAO_NULA) != 0) {
+                return null;
+            }
+            return texto(inicioOffsetsDescricao, linha);
+        }
+
+        public String obs(int linha) {
+            if ((buffer.get(inicioNulos + linha) & OBS_NULA) != 0) {
+                return null;
+            }
+            return texto(inicioOffsetsObs, linha);
+        }
+
+        private String texto(int inicioOffsets, int linha) {
+            int inicio = buffer.getInt(inicioOffsets + 4 * linha);
+            int fim = buffer.getInt(inicioOffsets + 4 * (linha + 1));
+            if (inicio == fim) {
+                return "";
+            }
+            byte[] bytes = new byte[fim - inicio];
+            buffer.get(inicioHeap + inicio, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        public Transacao transacao(int linha) {
+            Transacao t = new Transacao();
+            t.setId(id(linha));
+            t.setData(Datas.paraDate(epochDay(linha)));
+            t.setTipo(tipo(linha));
+            t.setDescricao(descricao(linha));
+            t.setValorCentavos(centavos(linha));
+            t.setFormaPagamento(formaPagamento(linha));
+            t.setObs(obs(linha));
+            return t;
+        }
+    }
+}
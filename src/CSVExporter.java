@@ -0,0 +1,252 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Exportação para CSV no formato da RFC 4180, em UTF-8 com BOM (para o Excel reconhecer os
+ * acentos ao abrir o arquivo). Colunas: ID, Data (dd/MM/yyyy), Tipo, Descrição, Valor
+ * (1234.56, com ponto decimal e sem separador de milhar), FormaPagamento e Obs. Campos com
+ * vírgula, aspas ou quebra de linha vão entre aspas, com as aspas internas duplicadas; as
+ * linhas terminam em CRLF.
+ *
+ * Os campos são lidos coluna a coluna ({@link ArquivoTransacoes.Fonte}, sem montar objetos
+ * Transacao) e codificados direto em um buffer de bytes que é gravado no canal do arquivo
+ * quando enche: nada de String.format nem de Strings intermediárias por linha, e a memória
+ * usada é a do buffer, qualquer que seja o número de linhas.
+ */
+public class CSVExporter {
+
+    private static final int TAMANHO_BUFFER = 1 << 20;
+    // Intervalo (em linhas) entre as verificações de cancelamento
+    private static final int LINHAS_POR_VERIFICACAO = 4096;
+
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final String[] CABECALHO = {"ID", "Data", "Tipo", "Descrição", "Valor", "FormaPagamento", "Obs"};
+
+    // Publicados por JMX (financeiro:type=Exportacao); o CSV é gravado em uma passada só
+    private static final Metricas.Histograma TEMPO_TOTAL = Metricas.histograma("Exportacao", "csv");
+    private static final Metricas.Contador LINHAS = Metricas.contador("Exportacao", "csv.linhas");
+
+    public static int exportar(List<Transacao> transacoes, File destino) throws IOException {
+        int[] linhas = new int[transacoes.size()];
+        for (int i = 0; i < linhas.length; i++) {
+            linhas[i] = i;
+        }
+        return exportar(ArquivoTransacoes.deLista(transacoes), linhas, destino, Progresso.NENHUM);
+    }
+
+    /**
+     * Grava as {@code linhas} de {@code colunas}, na ordem dada. Com o DAO, {@code linhas} são
+     * os slots de qualquer filtro ({@link TransacaoDAO#slotsPorMesEAno},
+     * {@link TransacaoDAO#buscarSlots}) e {@code colunas} vem de {@link TransacaoDAO#colunasPorSlot()}.
+     * Se a gravação falhar ou o cancelamento for pedido, o arquivo parcial é apagado (no
+     * cancelamento é lançada {@link CancellationException}).
+     *
+     * @return quantidade de transações gravadas
+     */
+    public static int exportar(ArquivoTransacoes.Fonte colunas, int[] linhas, File destino, Progresso progresso)
+            throws IOException {
+        long inicio = System.nanoTime();
+        boolean concluido = false;
+        try (FileChannel canal = FileChannel.open(destino.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Escritor out = new Escritor(canal);
+            out.bytes(BOM);
+            for (int i = 0; i < CABECALHO.length; i++) {
+                if (i > 0) {
+                    out.caractere(',');
+                }
+                out.campo(CABECALHO[i]);
+            }
+            out.fimDeLinha();
+
+            for (int i = 0; i < linhas.length; i++) {
+                if (i % LINHAS_POR_VERIFICACAO == 0) {
+                    if (progresso.isCancelado()) {
+                        throw new CancellationException("Exportação cancelada");
+                    }
+                    progresso.informar(i + " de " + linhas.length + " transações", i * 100 / linhas.length);
+                }
+                int linha = linhas[i];
+                out.inteiro(colunas.id(linha));
+                out.caractere(',');
+                out.data(colunas.epochDay(linha));
+                out.caractere(',');
+                out.campo(colunas.tipo(linha));
+                out.caractere(',');
+                out.campo(colunas.descricao(linha));
+                out.caractere(',');
+                out.valor(colunas.centavos(linha));
+                out.caractere(',');
+                out.campo(colunas.formaPagamento(linha));
+                out.caractere(',');
+                out.campo(colunas.obs(linha));
+                out.fimDeLinha();
+            }
+            out.esvaziar();
+            concluido = true;
+            TEMPO_TOTAL.registrarDesde(inicio);
+            LINHAS.somar(linhas.length);
+            return linhas.length;
+        } finally {
+            if (!concluido) {
+                destino.delete();
+            }
+        }
+    }
+
+    /** Buffer de bytes com codificação UTF-8 e formatação de números feitas à mão. */
+    private static final class Escritor {
+        // Folga para o maior trecho escrito de uma vez sem verificar espaço (um número ou uma data)
+        private static final int FOLGA = 32;
+
+        private final FileChannel canal;
+        private final byte[] buffer = new byte[TAMANHO_BUFFER];
+        private final ByteBuffer embrulho = ByteBuffer.wrap(buffer);
+        private final byte[] digitos = new byte[20];
+        private int posicao;
+
+        Escritor(FileChannel canal) {
+            this.canal = canal;
+        }
+
+        void esvaziar() throws IOException {
+            embrulho.clear().limit(posicao);
+            while (embrulho.hasRemaining()) {
+                canal.write(embrulho);
+            }
+            posicao = 0;
+        }
+
+        private void garantir(int bytes) throws IOException {
+            if (posicao + bytes > buffer.length) {
+                esvaziar();
+            }
+        }
+
+        void caractere(char c) throws IOException {
+            garantir(1);
+            buffer[posicao++] = (byte) c;
+        }
+
+        void bytes(byte[] bytes) throws IOException {
+            garantir(bytes.length);
+            System.arraycopy(bytes, 0, buffer, posicao, bytes.length);
+            posicao += bytes.length;
+        }
+
+        void fimDeLinha() throws IOException {
+            garantir(2);
+            buffer[posicao++] = '\r';
+            buffer[posicao++] = '\n';
+        }
+
+        /** Texto com aspas só quando necessário (vírgula, aspas, CR ou LF); null vira campo vazio. */
+        void campo(String texto) throws IOException {
+            if (texto == null) {
+                return;
+            }
+            boolean aspas = false;
+            for (int i = 0; i < texto.length() && !aspas; i++) {
+                char c = texto.charAt(i);
+                aspas = c == ',' || c == '"' || c == '\r' || c == '\n';
+            }
+
+            if (aspas) {
+                caractere('"');
+            }
+            for (int i = 0; i < texto.length(); i++) {
+                if (posicao > buffer.length - FOLGA) {
+                    esvaziar();
+                }
+                char c = texto.charAt(i);
+                if (c < 0x80) {
+                    if (c == '"') {
+                        buffer[posicao++] = '"';
+                    }
+                    buffer[posicao++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[posicao++] = (byte) (0xC0 | (c >> 6));
+                    buffer[posicao++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < texto.length()
+                        && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                    int codigo = Character.toCodePoint(c, texto.charAt(++i));
+                    buffer[posicao++] = (byte) (0xF0 | (codigo >> 18));
+                    buffer[posicao++] = (byte) (0x80 | ((codigo >> 12) & 0x3F));
+                    buffer[posicao++] = (byte) (0x80 | ((codigo >> 6) & 0x3F));
+                    buffer[posicao++] = (byte) (0x80 | (codigo & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // Surrogate sem par não tem representação em UTF-8
+                    buffer[posicao++] = '?';
+                } else {
+                    buffer[posicao++] = (byte) (0xE0 | (c >> 12));
+                    buffer[posicao++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[posicao++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            if (aspas) {
+                caractere('"');
+            }
+        }
+
+        void inteiro(long valor) throws IOException {
+            garantir(FOLGA);
+            if (valor < 0) {
+                buffer[posicao++] = '-';
+            }
+            // Long.MIN_VALUE não tem positivo correspondente; o valor negado é lido como unsigned
+            long absoluto = valor < 0 ? -valor : valor;
+            int n = 0;
+            do {
+                digitos[n++] = (byte) ('0' + Long.remainderUnsigned(absoluto, 10));
+                absoluto = Long.divideUnsigned(absoluto, 10);
+            } while (absoluto != 0);
+            while (n > 0) {
+                buffer[posicao++] = digitos[--n];
+            }
+        }
+
+        /** Centavos como "1234.56" (ponto decimal, sem separador de milhar). */
+        void valor(long centavos) throws IOException {
+            garantir(FOLGA);
+            if (centavos < 0) {
+                buffer[posicao++] = '-';
+            }
+            long absoluto = centavos < 0 ? -centavos : centavos;
+            inteiro(Long.divideUnsigned(absoluto, 100));
+            int resto = (int) Long.remainderUnsigned(absoluto, 100);
+            buffer[posicao++] = '.';
+            buffer[posicao++] = (byte) ('0' + resto / 10);
+            buffer[posicao++] = (byte) ('0' + resto % 10);
+        }
+
+        /** "dd/MM/yyyy"; campo vazio para {@link Datas#SEM_DATA}. */
+        void data(int epochDay) throws IOException {
+            if (epochDay == Datas.SEM_DATA) {
+                return;
+            }
+            garantir(FOLGA);
+            int epochMes = Datas.epochMes(epochDay);
+            int ano = Datas.ano(epochMes);
+            int mes = Datas.mes(epochMes);
+            int dia = epochDay - Datas.epochDay(ano, mes, 1) + 1;
+            doisDigitos(dia);
+            buffer[posicao++] = '/';
+            doisDigitos(mes);
+            buffer[posicao++] = '/';
+            for (int divisor = 1000; divisor > 1 && ano < divisor && ano >= 0; divisor /= 10) {
+                buffer[posicao++] = '0';
+            }
+            inteiro(ano);
+        }
+
+        private void doisDigitos(int valor) {
+            buffer[posicao++] = (byte) ('0' + valor / 10);
+            buffer[posicao++] = (byte) ('0' + valor % 10);
+        }
+    }
+}
@@ -164,17 +164,18 @@ public class CadastroTransacaoDialog extends JDialog {
             Date data = new SimpleDateFormat("dd/MM/yyyy").parse(txtData.getText());
             String tipo = (String) cmbTipo.getSelectedItem();
             String descricao = txtDescricao.getText().trim();
-            double valor = Double.parseDouble(txtValor.getText().replace(",", "."));
+            long valor = Moeda.converter(txtValor.getText());
             String forma = (String) cmbFormaPagamento.getSelectedItem();
 
             if (transacao == null) {
                 // Criar nova transação com ID 0 (será atualizado pelo DAO)
-                transacao = new Transacao(0, data, tipo, descricao, valor, forma);
+                transacao = new Transacao(0, data, tipo, descricao, 0, forma);
+                transacao.setValorCentavos(valor);
             } else {
                 // Atualizar transação existente
                 transacao.setTipo(tipo);
                 transacao.setDescricao(descricao);
-                transacao.setValor(valor);
+                transacao.setValorCentavos(valor);
                 transacao.setData(data);
                 transacao.setFormaPagamento(forma);
             }
@@ -187,7 +188,7 @@ public class CadastroTransacaoDialog extends JDialog {
                     "Erro", JOptionPane.ERROR_MESSAGE);
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this,
-                    "Valor inválido! Use números com ponto decimal",
+                    "Valor inválido! Use números com vírgula ou ponto decimal",
                     "Erro", JOptionPane.ERROR_MESSAGE);
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this,
@@ -206,7 +207,7 @@ public class CadastroTransacaoDialog extends JDialog {
         }
 
         try {
-            double valor = Double.parseDouble(txtValor.getText().replace(",", "."));
+            long valor = Moeda.converter(txtValor.getText());
             if (valor <= 0) {
                 throw new Exception("O valor deve ser maior que zero");
             }
@@ -259,7 +260,7 @@ public class CadastroTransacaoDialog extends JDialog {
         cmbTipo.setSelectedItem(transacao.getTipo());
         txtData.setText(new SimpleDateFormat("dd/MM/yyyy").format(transacao.getData()));
         txtDescricao.setText(transacao.getDescricao());
-        txtValor.setText(String.format("%.2f", transacao.getValor()));
+        txtValor.setText(Moeda.formatarParaEdicao(transacao.getValorCentavos()));
         cmbFormaPagamento.setSelectedItem(transacao.getFormaPagamento());
         setTitle("Editar Transação");
     }
@@ -0,0 +1,167 @@
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Conversões de data usadas pela persistência: as datas são guardadas como "epoch-day"
+ * (dias desde 01/01/1970 no fuso local), o que evita criar um Calendar por transação.
+ */
+public final class Datas {
+
+    /** Valor usado nos arquivos para representar uma data ausente. */
+    public static final int SEM_DATA = Integer.MIN_VALUE;
+
+    private static final long MILIS_POR_DIA = 86_400_000L;
+    private static final TimeZone FUSO = TimeZone.getDefault();
+    private static final ZoneId ZONA = FUSO.toZoneId();
+
+    private Datas() {
+    }
+
+    public static int paraEpochDay(Date data) {
+        if (data == null) {
+            return SEM_DATA;
+        }
+        long milis = data.getTime();
+        return (int) Math.floorDiv(milis + FUSO.getOffset(milis), MILIS_POR_DIA);
+    }
+
+    /**
+     * Mês absoluto (ano * 12 + mês - 1) do epoch-day, calculado sem Calendar nem LocalDate
+     * (algoritmo civil_from_days de Howard Hinnant).
+     */
+    public static int epochMes(int epochDay) {
+        int z = epochDay + 719_468;
+        int era = Math.floorDiv(z, 146_097);
+        int doe = z - era * 146_097;
+        int yoe = (doe - doe / 1460 + doe / 36_524 - doe / 146_096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int mes = mp < 10 ? mp + 3 : mp - 9;
+        int ano = yoe + era * 400 + (mes <= 2 ? 1 : 0);
+        return ano * 12 + mes - 1;
+    }
+
+    /**
+     * Epoch-day de uma data do calendário (algoritmo days_from_civil de Howard Hinnant).
+     * Mês e dia fora do intervalo "transbordam" como no Calendar leniente: 32/01 vira 01/02,
+     * mês 13 vira janeiro do ano seguinte.
+     */
+    public static int epochDay(int ano, int mes, int dia) {
+        ano += Math.floorDiv(mes - 1, 12);
+        mes = Math.floorMod(mes - 1, 12) + 1;
+        int y = mes <= 2 ? ano - 1 : ano;
+        int era = Math.floorDiv(y, 400);
+        int yoe = y - era * 400;
+        int doy = (153 * (mes > 2 ? mes - 3 : mes + 9) + 2) / 5;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146_097 + doe - 719_468 + (dia - 1);
+    }
+
+    /**
+     * Lê uma data digitada como dd/MM/yyyy, yyyy-MM-dd ou ddMMyyyy (dia e mês podem ter um
+     * dígito nos dois primeiros formatos). Caracteres que não sejam dígito, '/' ou '-' são
+     * ignorados, como em "Data: 05/01/2024". Percorre o texto uma única vez, sem criar
+     * objetos, e pode ser chamado de vários threads.
+     *
+     * @return o epoch-day, ou {@link #SEM_DATA} se o texto não estiver em nenhum dos formatos
+     */
+    public static int converter(CharSequence texto) {
+        // Até três grupos de dígitos separados pelo mesmo caractere ('/' ou '-')
+        int grupos = 0;
+        int g0 = 0, g1 = 0, g2 = 0;
+        int d0 = 0, d1 = 0, d2 = 0; // quantidade de dígitos de cada grupo
+        char separador = 0;
+
+        for (int i = 0, n = texto.length(); i < n; i++) {
+            char c = texto.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (grupos == 0) {
+                    grupos = 1;
+                }
+                int digito = c - '0';
+                switch (grupos) {
+                    case 1:
+                        if (++d0 > 8) return SEM_DATA;
+                        g0 = g0 * 10 + digito;
+                        break;
+                    case 2:
+                        if (++d1 > 4) return SEM_DATA;
+                        g1 = g1 * 10 + digito;
+                        break;
+                    default:
+                        if (++d2 > 4) return SEM_DATA;
+                        g2 = g2 * 10 + digito;
+                        break;
+                }
+            } else if (c == '/' || c == '-') {
+                // Separador só entre grupos não vazios, sempre o mesmo, no máximo dois
+                int digitosGrupo = grupos == 1 ? d0 : grupos == 2 ? d1 : d2;
+                if (grupos == 0 || grupos == 3 || digitosGrupo == 0 || (separador != 0 && c != separador)) {
+                    return SEM_DATA;
+                }
+                separador = c;
+                grupos++;
+            }
+            // Demais caracteres são descartados
+        }
+
+        if (grupos == 1 && d0 == 8) { // ddMMyyyy
+            return epochDay(g0 % 10_000, g0 / 10_000 % 100, g0 / 1_000_000);
+        }
+        if (grupos != 3 || d2 == 0) {
+            return SEM_DATA;
+        }
+        if (separador == '/' && d0 <= 2 && d1 <= 2 && d2 == 4) { // dd/MM/yyyy
+            return epochDay(g2, g1, g0);
+        }
+        if (separador == '-' && d0 == 4 && d1 <= 2 && d2 <= 2) { // yyyy-MM-dd
+            return epochDay(g0, g1, g2);
+        }
+        return SEM_DATA;
+    }
+
+    public static int epochMes(int ano, int mes) {
+        return ano * 12 + mes - 1;
+    }
+
+    public static int ano(int epochMes) {
+        return Math.floorDiv(epochMes, 12);
+    }
+
+    /** Mês de 1 a 12. */
+    public static int mes(int epochMes) {
+        return Math.floorMod(epochMes, 12) + 1;
+    }
+
+    /** "dd/MM/yyyy" do epoch-day (texto vazio para {@link #SEM_DATA}). */
+    public static String formatar(int epochDay) {
+        if (epochDay == SEM_DATA) {
+            return "";
+        }
+        LocalDate data = LocalDate.ofEpochDay(epochDay);
+        StringBuilder sb = new StringBuilder(10);
+        anexarDoisDigitos(sb, data.getDayOfMonth());
+        sb.append('/');
+        anexarDoisDigitos(sb, data.getMonthValue());
+        sb.append('/');
+        int ano = data.getYear();
+        for (int divisor = 1000; divisor > 1 && ano < divisor && ano >= 0; divisor /= 10) {
+            sb.append('0');
+        }
+        return sb.append(ano).toString();
+    }
+
+    private static void anexarDoisDigitos(StringBuilder sb, int valor) {
+        sb.append((char) ('0' + valor / 10)).append((char) ('0' + valor % 10));
+    }
+
+    /** Meia-noite (fuso local) do dia informado. */
+    public static Date paraDate(int epochDay) {
+        if (epochDay == SEM_DATA) {
+            return null;
+        }
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZONA).toInstant());
+    }
+}
@@ -0,0 +1,226 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * O que aconteceu em uma importação de planilha: quantas linhas de cada tipo, quantas foram
+ * rejeitadas por motivo, as primeiras linhas de cada ocorrência (com o conteúdo das células)
+ * e o tempo de cada fase. Devolvido por {@link ExcelImporter#importarTransacoes(java.io.File,
+ * java.util.function.Consumer, Progresso)} e exibido pela interface depois da importação.
+ *
+ * Só o thread de consolidação do importador altera o diagnóstico. O texto de uma linha é
+ * montado apenas quando ela entra como amostra, então linhas normais não geram nenhuma string.
+ */
+public class DiagnosticoImportacao {
+
+    /** Motivos de rejeição e avisos (linhas aproveitadas, mas que merecem conferência). */
+    public enum Ocorrencia {
+        DATA_INVALIDA("Data não reconhecida", true),
+        VALOR_INVALIDO("Valor inválido", true),
+        SEM_DATA("Sem data e sem transação anterior", true),
+        ERRO("Erro na leitura da linha", true),
+        POUCAS_CELULAS("Poucas células preenchidas", false),
+        DATA_ANTERIOR("Data vazia, usada a da transação anterior", false);
+
+        private final String descricao;
+        private final boolean rejeita;
+
+        Ocorrencia(String descricao, boolean rejeita) {
+            this.descricao = descricao;
+            this.rejeita = rejeita;
+        }
+
+        public String getDescricao() {
+            return descricao;
+        }
+
+        public boolean isRejeicao() {
+            return rejeita;
+        }
+    }
+
+    /** Uma linha da planilha guardada como exemplo de uma ocorrência. */
+    public static final class Amostra {
+        private final int linha;
+        private final String conteudo;
+        private final String mensagem;
+
+        Amostra(int linha, String conteudo, String mensagem) {
+            this.linha = linha;
+            this.conteudo = conteudo;
+            this.mensagem = mensagem;
+        }
+
+        /** Número da linha como o Excel mostra (a partir de 1). */
+        public int getLinha() {
+            return linha;
+        }
+
+        public String getConteudo() {
+            return conteudo;
+        }
+
+        /** Detalhe do erro; nulo nos avisos. */
+        public String getMensagem() {
+            return mensagem;
+        }
+    }
+
+    private final String arquivo;
+    private final int amostrasPorOcorrencia;
+    private final int[] contagens = new int[Ocorrencia.values().length];
+    private final Map<Ocorrencia, List<Amostra>> amostras = new EnumMap<>(Ocorrencia.class);
+
+    int linhasLidas;
+    int linhasVazias;
+    int cabecalhos;
+    int resumos;
+    int transacoes;
+    long nanosTotal;
+    long nanosLeitura;
+    long nanosAnalise;
+    long nanosValidacao;
+
+    DiagnosticoImportacao(String arquivo, int amostrasPorOcorrencia) {
+        this.arquivo = arquivo;
+        this.amostrasPorOcorrencia = amostrasPorOcorrencia;
+    }
+
+    /** Conta a ocorrência na linha e, enquanto houver vaga, guarda a linha como amostra. */
+    void registrar(Ocorrencia ocorrencia, int numero, LinhaPlanilha linha, String mensagem) {
+        contagens[ocorrencia.ordinal()]++;
+        List<Amostra> lista = amostras.get(ocorrencia);
+        if (lista == null) {
+            lista = new ArrayList<>(amostrasPorOcorrencia);
+            amostras.put(ocorrencia, lista);
+        }
+        if (lista.size() < amostrasPorOcorrencia) {
+            lista.add(new Amostra(numero, conteudo(linha), mensagem));
+        }
+    }
+
+    // As células da data à observação, separadas por " | "
+    private static String conteudo(LinhaPlanilha linha) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < LinhaPlanilha.COLUNAS; i++) {
+            if (i > 0) {
+                sb.append(" | ");
+            }
+            sb.append(linha.isVazia(i) ? "[vazio]" : linha.getTexto(i));
+        }
+        return sb.toString();
+    }
+
+    public String getArquivo() {
+        return arquivo;
+    }
+
+    public int getLinhasLidas() {
+        return linhasLidas;
+    }
+
+    public int getLinhasVazias() {
+        return linhasVazias;
+    }
+
+    public int getCabecalhos() {
+        return cabecalhos;
+    }
+
+    /** Linhas de resumo ("JAN", ..., "TOTAL") ignoradas. */
+    public int getResumos() {
+        return resumos;
+    }
+
+    public int getTransacoes() {
+        return transacoes;
+    }
+
+    public int getQuantidade(Ocorrencia ocorrencia) {
+        return contagens[ocorrencia.ordinal()];
+    }
+
+    public List<Amostra> getAmostras(Ocorrencia ocorrencia) {
+        List<Amostra> lista = amostras.get(ocorrencia);
+        return lista == null ? Collections.emptyList() : Collections.unmodifiableList(lista);
+    }
+
+    public int getRejeitadas() {
+        int total = 0;
+        for (Ocorrencia ocorrencia : Ocorrencia.values()) {
+            if (ocorrencia.isRejeicao()) {
+                total += getQuantidade(ocorrencia);
+            }
+        }
+        return total;
+    }
+
+    public int getAvisos() {
+        int total = 0;
+        for (Ocorrencia ocorrencia : Ocorrencia.values()) {
+            if (!ocorrencia.isRejeicao()) {
+                total += getQuantidade(ocorrencia);
+            }
+        }
+        return total;
+    }
+
+    /** Duração total da importação. */
+    public long getNanosTotal() {
+        return nanosTotal;
+    }
+
+    /** Tempo de leitura da planilha (descompactar e interpretar o arquivo). */
+    public long getNanosLeitura() {
+        return nanosLeitura;
+    }
+
+    /** Análise das células, somada entre os threads do pool (pode passar do total). */
+    public long getNanosAnalise() {
+        return nanosAnalise;
+    }
+
+    /** Consolidação das linhas na ordem do arquivo, incluindo a entrega das transações. */
+    public long getNanosValidacao() {
+        return nanosValidacao;
+    }
+
+    /** Relatório em texto: totais, tempos e, para cada ocorrência, a contagem e as amostras. */
+    public String relatorio() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Arquivo: ").append(arquivo).append('\n');
+        sb.append(String.format("Linhas lidas: %d (cabeçalho: %d, resumos: %d, vazias: %d)%n",
+                linhasLidas, cabecalhos, resumos, linhasVazias));
+        sb.append(String.format("Transações importadas: %d%n", transacoes));
+        sb.append(String.format("Linhas rejeitadas: %d%n", getRejeitadas()));
+        sb.append(String.format("Tempo: %.2f s (leitura %.2f s, análise %.2f s nos threads, validação %.2f s)%n",
+                nanosTotal / 1e9, nanosLeitura / 1e9, nanosAnalise / 1e9, nanosValidacao / 1e9));
+
+        for (Ocorrencia ocorrencia : Ocorrencia.values()) {
+            int quantidade = getQuantidade(ocorrencia);
+            if (quantidade == 0) {
+                continue;
+            }
+            sb.append('\n').append(ocorrencia.isRejeicao() ? "Rejeitadas - " : "Aviso - ")
+                    .append(ocorrencia.getDescricao()).append(": ").append(quantidade).append(" linha(s)\n");
+            for (Amostra amostra : getAmostras(ocorrencia)) {
+                sb.append("  Linha ").append(amostra.getLinha()).append(": ").append(amostra.getConteudo());
+                if (amostra.getMensagem() != null) {
+                    sb.append("\n    ").append(amostra.getMensagem());
+                }
+                sb.append('\n');
+            }
+            if (quantidade > getAmostras(ocorrencia).size()) {
+                sb.append("  ... e mais ").append(quantidade - getAmostras(ocorrencia).size()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return relatorio();
+    }
+}
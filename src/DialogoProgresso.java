@@ -0,0 +1,125 @@
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+
+/**
+ * Diálogo com barra de progresso e botão "Cancelar" para tarefas executadas fora da EDT.
+ * Só aparece se a tarefa demorar mais que {@link #ATRASO_EXIBICAO_MS}, para que operações
+ * rápidas (como trocar o filtro) não pisquem uma janela na tela.
+ */
+public class DialogoProgresso extends JDialog {
+
+    private static final int ATRASO_EXIBICAO_MS = 400;
+    private static final Font LABEL_FONT = new Font("Segoe UI", Font.PLAIN, 14);
+
+    /**
+     * SwingWorker que informa o andamento ao diálogo. O cancelamento é cooperativo: a tarefa
+     * consulta {@link #isCancelado()} (o thread não é interrompido, para não fechar canais de
+     * arquivo no meio de uma gravação). O resultado é tratado em {@link #concluir()}, chamado
+     * na EDT depois que o diálogo já foi fechado.
+     */
+    public abstract static class Tarefa<T, V> extends SwingWorker<T, V> implements Progresso {
+        static final String PROPRIEDADE_MENSAGEM = "mensagem";
+
+        private volatile String mensagem = "";
+        private Runnable aoTerminar;
+
+        @Override
+        public void informar(String mensagem, int percentual) {
+            String anterior = this.mensagem;
+            this.mensagem = mensagem;
+            firePropertyChange(PROPRIEDADE_MENSAGEM, anterior, mensagem);
+            if (percentual >= 0) {
+                setProgress(Math.min(percentual, 100));
+            }
+        }
+
+        @Override
+        public boolean isCancelado() {
+            return isCancelled();
+        }
+
+        /**
+         * Tarefas que não podem parar no meio (uma gravação tudo-ou-nada) retornam {@code false}
+         * e o diálogo não oferece o botão "Cancelar".
+         */
+        protected boolean isCancelavel() {
+            return true;
+        }
+
+        /** Executado na EDT ao final (também quando a tarefa foi cancelada ou falhou). */
+        protected void concluir() {
+        }
+
+        @Override
+        protected final void done() {
+            if (aoTerminar != null) {
+                aoTerminar.run();
+            }
+            concluir();
+        }
+    }
+
+    private final JLabel lblMensagem = new JLabel(" ");
+    private final JProgressBar barra = new JProgressBar(0, 100);
+    private final Timer temporizadorExibicao;
+
+    private DialogoProgresso(Window dono, String titulo, Tarefa<?, ?> tarefa) {
+        super(dono, titulo, ModalityType.APPLICATION_MODAL);
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+
+        lblMensagem.setFont(LABEL_FONT);
+        barra.setIndeterminate(true);
+        barra.setPreferredSize(new Dimension(360, 18));
+
+        JButton btnCancelar = new JButton("Cancelar");
+        btnCancelar.addActionListener(e -> {
+            btnCancelar.setEnabled(false);
+            lblMensagem.setText("Cancelando...");
+            tarefa.cancel(false);
+        });
+
+        JPanel botoes = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+        if (tarefa.isCancelavel()) {
+            botoes.add(btnCancelar);
+        }
+
+        JPanel painel = new JPanel(new BorderLayout(0, 12));
+        painel.setBorder(new EmptyBorder(20, 20, 16, 20));
+        painel.add(lblMensagem, BorderLayout.NORTH);
+        painel.add(barra, BorderLayout.CENTER);
+        painel.add(botoes, BorderLayout.SOUTH);
+        setContentPane(painel);
+        pack();
+        setResizable(false);
+        setLocationRelativeTo(dono);
+
+        tarefa.addPropertyChangeListener(evento -> {
+            if (Tarefa.PROPRIEDADE_MENSAGEM.equals(evento.getPropertyName()) && btnCancelar.isEnabled()) {
+                lblMensagem.setText((String) evento.getNewValue());
+            } else if ("progress".equals(evento.getPropertyName())) {
+                barra.setIndeterminate(false);
+                barra.setValue((Integer) evento.getNewValue());
+            }
+        });
+
+        temporizadorExibicao = new Timer(ATRASO_EXIBICAO_MS, e -> {
+            if (!tarefa.isDone()) {
+                setVisible(true);
+            }
+        });
+        temporizadorExibicao.setRepeats(false);
+    }
+
+    /** Inicia a tarefa em segundo plano; o diálogo é exibido se ela não terminar logo. */
+    public static void executar(Component dono, String titulo, Tarefa<?, ?> tarefa) {
+        Window janela = dono instanceof Window ? (Window) dono : SwingUtilities.getWindowAncestor(dono);
+        DialogoProgresso dialogo = new DialogoProgresso(janela, titulo, tarefa);
+        tarefa.aoTerminar = () -> {
+            dialogo.temporizadorExibicao.stop();
+            dialogo.dispose();
+        };
+        dialogo.temporizadorExibicao.start();
+        tarefa.execute();
+    }
+}
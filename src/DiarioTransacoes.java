@@ -0,0 +1,347 @@
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Diário (write-ahead log) das alterações feitas no TransacaoDAO.
+ *
+ * Cada inserção, atualização ou exclusão vira um registro pequeno anexado ao fim do arquivo,
+ * então o custo de gravar uma transação não depende do tamanho da base. O fsync é feito em lote
+ * por uma thread em segundo plano; o snapshot completo só é regravado na compactação.
+ *
+ * O arquivo começa com o cabeçalho [magic "TXNW" int][versão short], seguido dos registros:
+ * [tamanho int][crc32 int][operação byte][dados...]
+ * Datas e valores seguem a mesma representação do transacoes.dat (epoch-day e centavos).
+ * Um arquivo com outro magic ou outra versão é recusado sem ser alterado.
+ */
+public class DiarioTransacoes {
+    private static final Logger LOG = LogManager.getLogger(DiarioTransacoes.class);
+
+    public static final int MAGIC = 0x54584E57; // "TXNW"
+    public static final short VERSAO = 2; // 2: data em epoch-day e valor em centavos
+    private static final int TAMANHO_CABECALHO = 6;
+
+    public static final byte OP_INSERIR = 'I';
+    public static final byte OP_ATUALIZAR = 'A';
+    public static final byte OP_EXCLUIR = 'E';
+    public static final byte OP_EXCLUIR_VARIOS = 'X';
+    public static final byte OP_INSERIR_LOTE = 'L';
+
+    // Intervalo máximo entre a escrita de um registro e o fsync correspondente
+    private static final long INTERVALO_SINCRONIZACAO_MS = 200;
+
+    /** Recebe os registros lidos do diário durante a reaplicação. */
+    public interface Reaplicador {
+        void gravar(Transacao transacao);
+        void excluir(int id);
+    }
+
+    private final Path caminho;
+    private final FileChannel canal;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    private final DataOutputStream saida = new DataOutputStream(buffer);
+    private final CRC32 crc = new CRC32();
+    private final AtomicBoolean pendenteSincronizar = new AtomicBoolean(false);
+    private final ScheduledExecutorService sincronizador;
+    private int registros;
+
+    /**
+     * Abre (ou cria) o diário.
+     *
+     * @throws IOException se o arquivo não puder ser aberto ou não for um diário desta versão
+     *                     (o arquivo é mantido como está)
+     */
+    public DiarioTransacoes(String arquivo) throws IOException {
+        this.caminho = Paths.get(arquivo);
+        this.canal = FileChannel.open(caminho,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            verificarCabecalho();
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+
+        this.sincronizador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "diario-transacoes-fsync");
+            t.setDaemon(true);
+            return t;
+        });
+        sincronizador.scheduleWithFixedDelay(this::sincronizarSePendente,
+                INTERVALO_SINCRONIZACAO_MS, INTERVALO_SINCRONIZACAO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Grava o cabeçalho num diário novo; num existente, confere magic e versão
+    private void verificarCabecalho() throws IOException {
+        ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+        if (canal.size() == 0) {
+            cabecalho.putInt(MAGIC).putShort(VERSAO).flip();
+            while (cabecalho.hasRemaining()) {
+                canal.write(cabecalho);
+            }
+            return;
+        }
+        if (canal.size() < TAMANHO_CABECALHO) {
+            throw new IOException(caminho + " não é um diário de transações (arquivo mantido sem alterações)");
+        }
+        lerCompleto(cabecalho, 0);
+        cabecalho.flip();
+        if (cabecalho.getInt() != MAGIC) {
+            throw new IOException(caminho + " não é um diário de transações (arquivo mantido sem alterações)");
+        }
+        short versao = cabecalho.getShort();
+        if (versao != VERSAO) {
+            throw new IOException("Versão " + versao + " do diário " + caminho + " não suportada (esperada "
+                    + VERSAO + "); arquivo mantido sem alterações");
+        }
+    }
+
+    /**
+     * Lê o diário do início e entrega cada registro ao reaplicador.
+     * Um registro incompleto ou corrompido no fim (queda no meio da escrita) é descartado.
+     */
+    public synchronized int reaplicar(Reaplicador reaplicador) throws IOException {
+        long tamanhoArquivo = canal.size();
+        ByteBuffer cabecalho = ByteBuffer.allocate(8);
+        long posicao = TAMANHO_CABECALHO;
+        registros = 0;
+
+        while (posicao + 8 <= tamanhoArquivo) {
+            cabecalho.clear();
+            lerCompleto(cabecalho, posicao);
+            cabecalho.flip();
+            int tamanho = cabecalho.getInt();
+            int crcEsperado = cabecalho.getInt();
+
+            if (tamanho <= 0 || posicao + 8 + tamanho > tamanhoArquivo) {
+                break;
+            }
+
+            ByteBuffer dados = ByteBuffer.allocate(tamanho);
+            lerCompleto(dados, posicao + 8);
+
+            crc.reset();
+            crc.update(dados.array(), 0, tamanho);
+            if ((int) crc.getValue() != crcEsperado) {
+                break;
+            }
+
+            registros += aplicarRegistro(dados.array(), reaplicador);
+            posicao += 8 + tamanho;
+        }
+
+        if (posicao < tamanhoArquivo) {
+            LOG.warn("{} com registro incompleto a partir do byte {}, descartando o restante", caminho, posicao);
+            canal.truncate(posicao);
+        }
+        canal.position(posicao);
+        return registros;
+    }
+
+    public synchronized void registrarInsercao(Transacao transacao) throws IOException {
+        anexar(OP_INSERIR, transacao, 0);
+    }
+
+    public synchronized void registrarAtualizacao(Transacao transacao) throws IOException {
+        anexar(OP_ATUALIZAR, transacao, 0);
+    }
+
+    public synchronized void registrarExclusao(int id) throws IOException {
+        anexar(OP_EXCLUIR, null, id);
+    }
+
+    /** Grava a exclusão de vários ids em um único registro (uma escrita, um fsync). */
+    public synchronized void registrarExclusoes(int[] ids, int quantidade) throws IOException {
+        buffer.reset();
+        saida.writeInt(0);
+        saida.writeInt(0);
+        saida.writeByte(OP_EXCLUIR_VARIOS);
+        saida.writeInt(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            saida.writeInt(ids[i]);
+        }
+        gravarRegistro(quantidade);
+    }
+
+    /**
+     * Grava a inclusão de várias transações em um único registro. Como o crc cobre o registro
+     * inteiro, na reaplicação entram todas ou nenhuma.
+     */
+    public synchronized void registrarLote(Transacao[] transacoes) throws IOException {
+        buffer.reset();
+        saida.writeInt(0);
+        saida.writeInt(0);
+        saida.writeByte(OP_INSERIR_LOTE);
+        saida.writeInt(transacoes.length);
+        for (Transacao transacao : transacoes) {
+            escreverTransacao(transacao);
+        }
+        gravarRegistro(transacoes.length);
+    }
+
+    /** Número de operações acumuladas desde a última compactação (um lote conta cada transação). */
+    public synchronized int getRegistros() {
+        return registros;
+    }
+
+    /** Zera o diário (mantendo o cabeçalho) depois que o snapshot foi gravado com sucesso. */
+    public synchronized void limpar() throws IOException {
+        canal.truncate(TAMANHO_CABECALHO);
+        canal.position(TAMANHO_CABECALHO);
+        canal.force(true);
+        pendenteSincronizar.set(false);
+        registros = 0;
+    }
+
+    /** Força a gravação em disco de tudo que ainda está pendente. */
+    public void sincronizar() throws IOException {
+        if (pendenteSincronizar.getAndSet(false)) {
+            canal.force(false);
+        }
+    }
+
+    public void fechar() {
+        sincronizador.shutdown();
+        try {
+            sincronizar();
+            canal.close();
+        } catch (IOException e) {
+            LOG.error("Erro ao fechar {}: {}", caminho, e.getMessage());
+        }
+    }
+
+    private void sincronizarSePendente() {
+        try {
+            sincronizar();
+        } catch (IOException e) {
+            LOG.error("Erro ao sincronizar {}: {}", caminho, e.getMessage());
+        }
+    }
+
+    private void anexar(byte operacao, Transacao transacao, int id) throws IOException {
+        buffer.reset();
+        saida.writeInt(0); // tamanho, preenchido abaixo
+        saida.writeInt(0); // crc, preenchido abaixo
+        saida.writeByte(operacao);
+        if (transacao != null) {
+            escreverTransacao(transacao);
+        } else {
+            saida.writeInt(id);
+        }
+        gravarRegistro(1);
+    }
+
+    // Preenche tamanho e crc do registro montado no buffer e o anexa ao arquivo.
+    // Se a escrita falhar no meio, o pedaço gravado é removido para não esconder os registros seguintes.
+    private void gravarRegistro(int operacoes) throws IOException {
+        saida.flush();
+
+        ByteBuffer registro = ByteBuffer.wrap(buffer.toByteArray());
+        int tamanho = registro.limit() - 8;
+        crc.reset();
+        crc.update(registro.array(), 8, tamanho);
+        registro.putInt(0, tamanho);
+        registro.putInt(4, (int) crc.getValue());
+
+        long inicio = canal.position();
+        try {
+            while (registro.hasRemaining()) {
+                canal.write(registro);
+            }
+        } catch (IOException e) {
+            try {
+                canal.truncate(inicio);
+                canal.position(inicio);
+            } catch (IOException erroTruncar) {
+                e.addSuppressed(erroTruncar);
+            }
+            throw e;
+        }
+        registros += operacoes;
+        pendenteSincronizar.set(true);
+    }
+
+    private void escreverTransacao(Transacao t) throws IOException {
+        saida.writeInt(t.getId());
+        saida.writeInt(Datas.paraEpochDay(t.getData()));
+        escreverTexto(t.getTipo());
+        escreverTexto(t.getDescricao());
+        saida.writeLong(t.getValorCentavos());
+        escreverTexto(t.getFormaPagamento());
+        escreverTexto(t.getObs());
+    }
+
+    private void escreverTexto(String texto) throws IOException {
+        saida.writeBoolean(texto != null);
+        if (texto != null) {
+            saida.writeUTF(texto);
+        }
+    }
+
+    // Devolve o número de operações contidas no registro
+    private int aplicarRegistro(byte[] dados, Reaplicador reaplicador) throws IOException {
+        DataInputStream entrada = new DataInputStream(new java.io.ByteArrayInputStream(dados));
+        byte operacao = entrada.readByte();
+
+        if (operacao == OP_EXCLUIR) {
+            reaplicador.excluir(entrada.readInt());
+            return 1;
+        }
+        if (operacao == OP_EXCLUIR_VARIOS) {
+            int quantidade = entrada.readInt();
+            for (int i = 0; i < quantidade; i++) {
+                reaplicador.excluir(entrada.readInt());
+            }
+            return quantidade;
+        }
+        if (operacao == OP_INSERIR_LOTE) {
+            int quantidade = entrada.readInt();
+            for (int i = 0; i < quantidade; i++) {
+                reaplicador.gravar(lerTransacao(entrada));
+            }
+            return quantidade;
+        }
+
+        reaplicador.gravar(lerTransacao(entrada));
+        return 1;
+    }
+
+    private static Transacao lerTransacao(DataInputStream entrada) throws IOException {
+        Transacao t = new Transacao();
+        t.setId(entrada.readInt());
+        t.setData(Datas.paraDate(entrada.readInt()));
+        t.setTipo(lerTexto(entrada));
+        t.setDescricao(lerTexto(entrada));
+        t.setValorCentavos(entrada.readLong());
+        t.setFormaPagamento(lerTexto(entrada));
+        t.setObs(lerTexto(entrada));
+        return t;
+    }
+
+    private static String lerTexto(DataInputStream entrada) throws IOException {
+        return entrada.readBoolean() ? entrada.readUTF() : null;
+    }
+
+    private void lerCompleto(ByteBuffer destino, long posicao) throws IOException {
+        while (destino.hasRemaining()) {
+            int lidos = canal.read(destino, posicao + destino.position());
+            if (lidos < 0) {
+                throw new IOException("Fim inesperado do diário " + caminho);
+            }
+        }
+    }
+}
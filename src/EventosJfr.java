@@ -0,0 +1,134 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Eventos do Java Flight Recorder emitidos pelo DAO, pela importação, pelo PDF e pelo gráfico.
+ * Com o thread de cada evento na gravação dá para ver o que rodou no EDT e por quanto tempo;
+ * o perfil financeiro.jfc, na raiz do projeto, liga todos eles junto com o padrão do JDK:
+ *
+ * <pre>
+ * java -XX:StartFlightRecording:settings=default,settings=financeiro.jfc,filename=financeiro.jfr ...
+ * </pre>
+ *
+ * Sem gravação em andamento {@code begin()} e {@code commit()} não fazem nada e o JIT elimina
+ * o objeto do evento; campos que custam algo para calcular (tamanho de arquivo, vazão) só são
+ * preenchidos depois de {@code shouldCommit()}.
+ */
+public final class EventosJfr {
+
+    private EventosJfr() {
+    }
+
+    @Name("financeiro.dao.Carregamento")
+    @Label("Carregamento da base")
+    @Category({"Financeiro", "DAO"})
+    @Description("Abertura do DAO: leitura do transacoes.dat, índices e reaplicação do diário")
+    public static final class Carregamento extends Event {
+        @Label("Transações")
+        int transacoes;
+
+        @Label("Tamanho do arquivo")
+        @DataAmount
+        long bytes;
+
+        @Label("Mapeado")
+        @Description("Arquivo mapeado em memória em vez de lido para o heap")
+        boolean mapeado;
+    }
+
+    @Name("financeiro.dao.Gravacao")
+    @Label("Gravação do snapshot")
+    @Category({"Financeiro", "DAO"})
+    @Description("Gravação completa do transacoes.dat (compactação do diário ou alteração sem diário)")
+    public static final class Gravacao extends Event {
+        @Label("Transações")
+        int transacoes;
+
+        @Label("Bytes gravados")
+        @DataAmount
+        long bytes;
+
+        @Label("Sucesso")
+        boolean sucesso;
+    }
+
+    @Name("financeiro.dao.Alteracao")
+    @Label("Alteração de transações")
+    @Category({"Financeiro", "DAO"})
+    @Description("Inclusão, alteração ou exclusão, com o registro no diário ou a gravação do snapshot")
+    public static final class Alteracao extends Event {
+        @Label("Operação")
+        String operacao;
+
+        @Label("Transações")
+        int quantidade;
+    }
+
+    @Name("financeiro.excel.Importacao")
+    @Label("Importação de planilha")
+    @Category({"Financeiro", "Importação"})
+    @Description("Leitura e análise da primeira aba de uma planilha (a única que o importador lê)")
+    public static final class Importacao extends Event {
+        @Label("Arquivo")
+        String arquivo;
+
+        @Label("Linhas lidas")
+        int linhasLidas;
+
+        @Label("Transações")
+        int transacoes;
+
+        @Label("Linhas rejeitadas")
+        int linhasRejeitadas;
+
+        @Label("Linhas por segundo")
+        double linhasPorSegundo;
+
+        @Label("Concluída")
+        @Description("Falso se a importação foi cancelada ou falhou")
+        boolean concluida;
+    }
+
+    @Name("financeiro.pdf.Exportacao")
+    @Label("Relatório PDF")
+    @Category({"Financeiro", "Exportação"})
+    public static final class ExportacaoPdf extends Event {
+        @Label("Arquivo")
+        String arquivo;
+
+        @Label("Linhas")
+        int linhas;
+
+        @Label("Páginas")
+        int paginas;
+
+        @Label("Sucesso")
+        boolean sucesso;
+    }
+
+    @Name("financeiro.grafico.Atualizacao")
+    @Label("Atualização do gráfico")
+    @Category({"Financeiro", "Gráfico"})
+    @Description("Série do DAO aplicada ao dataset do gráfico (no EDT)")
+    public static final class AtualizacaoGrafico extends Event {
+        @Label("Meses")
+        int meses;
+
+        @Label("Reconstruído")
+        @Description("Os meses mudaram e o dataset foi refeito do zero")
+        boolean reconstruido;
+    }
+
+    @Name("financeiro.grafico.Desenho")
+    @Label("Desenho do gráfico")
+    @Category({"Financeiro", "Gráfico"})
+    @Description("paintComponent do painel do gráfico (no EDT)")
+    public static final class DesenhoGrafico extends Event {
+        @Label("Meses")
+        int meses;
+    }
+}
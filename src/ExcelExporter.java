@@ -0,0 +1,193 @@
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Exportação para .xlsx no layout lido pelo {@link ExcelImporter}: Data, ID, Tipo, Descrição,
+ * Valor, Pagamento e Obs, com o cabeçalho na primeira linha. A data é uma célula de data do
+ * Excel e o valor um número, de modo que a planilha pode ser editada e importada de volta
+ * (a coluna ID é só informativa: na importação as transações recebem IDs novos).
+ *
+ * A planilha é escrita com {@link SXSSFWorkbook}: só as últimas {@link #JANELA_LINHAS} linhas
+ * ficam em memória e as anteriores vão para um arquivo temporário compactado, então a memória
+ * usada não depende do número de transações. Os textos são gravados dentro das células, sem a
+ * tabela de textos compartilhados, que cresceria com o arquivo.
+ */
+public class ExcelExporter {
+
+    private static final int JANELA_LINHAS = 100;
+    // Intervalo (em linhas) entre as verificações de cancelamento
+    private static final int LINHAS_POR_VERIFICACAO = 4096;
+    // Linhas de dados por aba (o limite do formato, menos a linha de cabeçalho)
+    private static final int LINHAS_POR_ABA = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1;
+    // Número de série do Excel para 1970-01-01; vale para datas a partir de 01/03/1900 (série 61),
+    // pois o Excel conta um 29/02/1900 que não existiu
+    private static final int SERIE_EPOCH = 25569;
+    private static final int PRIMEIRA_SERIE_VALIDA = 61;
+
+    private static final String[] CABECALHO = {"Data", "ID", "Tipo", "Descrição", "Valor", "Pagamento", "Obs"};
+    // Larguras em caracteres
+    private static final int[] LARGURAS = {12, 10, 10, 45, 14, 16, 40};
+
+    // Fases publicadas por JMX (financeiro:type=Exportacao): as linhas vão para os arquivos
+    // temporários do SXSSF e a gravação junta tudo no .xlsx compactado
+    private static final Metricas.Histograma TEMPO_TOTAL = Metricas.histograma("Exportacao", "excel");
+    private static final Metricas.Histograma TEMPO_LINHAS = Metricas.histograma("Exportacao", "excel.linhas");
+    private static final Metricas.Histograma TEMPO_GRAVACAO = Metricas.histograma("Exportacao", "excel.gravacao");
+    private static final Metricas.Contador LINHAS = Metricas.contador("Exportacao", "excel.linhasGravadas");
+
+    public static int exportar(List<Transacao> transacoes, File destino) throws IOException {
+        return exportar(transacoes, destino, Progresso.NENHUM);
+    }
+
+    /**
+     * Grava as transações na ordem da lista, lendo cada uma uma única vez (a lista pode ser a
+     * visão de {@link TransacaoDAO#buscarSincronizado}). Se houver mais linhas do que cabem em
+     * uma aba, o restante continua em abas seguintes; o {@link ExcelImporter} lê apenas a
+     * primeira. Transações sem data ficam com a célula vazia, que na importação recebe a data
+     * da linha anterior. Se a gravação falhar ou o cancelamento for pedido, o arquivo parcial
+     * é apagado (no cancelamento é lançada {@link CancellationException}).
+     *
+     * @return quantidade de transações gravadas
+     */
+    public static int exportar(List<Transacao> transacoes, File destino, Progresso progresso) throws IOException {
+        long inicio = System.nanoTime();
+        int total = transacoes.size();
+        boolean concluido = false;
+        SXSSFWorkbook workbook = new SXSSFWorkbook(null, JANELA_LINHAS, true, false);
+        try {
+            Estilos estilos = new Estilos(workbook);
+            Sheet aba = null;
+            int linhaNaAba = 0;
+
+            for (int i = 0; i < total; i++) {
+                if (i % LINHAS_POR_VERIFICACAO == 0) {
+                    if (progresso.isCancelado()) {
+                        throw new CancellationException("Exportação cancelada");
+                    }
+                    progresso.informar(i + " de " + total + " transações", i * 100 / total);
+                }
+                if (aba == null || linhaNaAba > LINHAS_POR_ABA) {
+                    aba = criarAba(workbook, estilos);
+                    linhaNaAba = 1;
+                }
+                preencherLinha(aba.createRow(linhaNaAba++), transacoes.get(i), estilos);
+            }
+            if (aba == null) {
+                criarAba(workbook, estilos);
+            }
+
+            TEMPO_LINHAS.registrarDesde(inicio);
+
+            progresso.informar("Gravando o arquivo...", -1);
+            long inicioGravacao = System.nanoTime();
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(destino))) {
+                workbook.write(out);
+            }
+            TEMPO_GRAVACAO.registrarDesde(inicioGravacao);
+            concluido = true;
+            TEMPO_TOTAL.registrarDesde(inicio);
+            LINHAS.somar(total);
+            return total;
+        } finally {
+            // Apaga os arquivos temporários das linhas que já saíram da janela
+            workbook.dispose();
+            workbook.close();
+            if (!concluido) {
+                destino.delete();
+            }
+        }
+    }
+
+    private static Sheet criarAba(SXSSFWorkbook workbook, Estilos estilos) {
+        int numero = workbook.getNumberOfSheets();
+        Sheet aba = workbook.createSheet(numero == 0 ? "Transações" : "Transações (" + (numero + 1) + ")");
+        for (int i = 0; i < LARGURAS.length; i++) {
+            aba.setColumnWidth(i, LARGURAS[i] * 256);
+        }
+        aba.createFreezePane(0, 1);
+
+        Row cabecalho = aba.createRow(0);
+        for (int i = 0; i < CABECALHO.length; i++) {
+            Cell celula = cabecalho.createCell(i);
+            celula.setCellValue(CABECALHO[i]);
+            celula.setCellStyle(estilos.cabecalho);
+        }
+        return aba;
+    }
+
+    private static void preencherLinha(Row linha, Transacao transacao, Estilos estilos) {
+        int epochDay = Datas.paraEpochDay(transacao.getData());
+        if (epochDay != Datas.SEM_DATA) {
+            Cell data = linha.createCell(0);
+            if (epochDay + SERIE_EPOCH >= PRIMEIRA_SERIE_VALIDA) {
+                data.setCellValue(epochDay + SERIE_EPOCH);
+                data.setCellStyle(estilos.data);
+            } else {
+                // Anterior ao que o Excel representa como data: vai como texto, que o importador também aceita
+                data.setCellValue(Datas.formatar(epochDay));
+                data.setCellStyle(estilos.padrao);
+            }
+        }
+        Cell id = linha.createCell(1);
+        id.setCellValue(transacao.getId());
+        id.setCellStyle(estilos.padrao);
+        texto(linha, 2, transacao.getTipo(), estilos);
+        texto(linha, 3, transacao.getDescricao(), estilos);
+        Cell valor = linha.createCell(4);
+        valor.setCellValue(Moeda.paraDouble(transacao.getValorCentavos()));
+        valor.setCellStyle(estilos.valor);
+        texto(linha, 5, transacao.getFormaPagamento(), estilos);
+        texto(linha, 6, transacao.getObs(), estilos);
+    }
+
+    // Texto nulo ou vazio não gera célula
+    private static void texto(Row linha, int coluna, String texto, Estilos estilos) {
+        if (texto != null && !texto.isEmpty()) {
+            Cell celula = linha.createCell(coluna);
+            celula.setCellValue(texto);
+            celula.setCellStyle(estilos.padrao);
+        }
+    }
+
+    /**
+     * Estilos criados uma vez por planilha (o formato .xlsx limita a quantidade de estilos).
+     * Toda célula recebe um estilo explícito: sem ele o SXSSF procura o estilo padrão da coluna
+     * na definição das colunas (XMLBeans) a cada célula gravada, o que dominava o tempo da
+     * exportação.
+     */
+    private static final class Estilos {
+        final CellStyle padrao;
+        final CellStyle cabecalho;
+        final CellStyle data;
+        final CellStyle valor;
+
+        Estilos(SXSSFWorkbook workbook) {
+            padrao = workbook.getCellStyleAt(0);
+
+            Font negrito = workbook.createFont();
+            negrito.setBold(true);
+            cabecalho = workbook.createCellStyle();
+            cabecalho.setFont(negrito);
+
+            DataFormat formatos = workbook.createDataFormat();
+            data = workbook.createCellStyle();
+            data.setDataFormat(formatos.getFormat("dd/mm/yyyy"));
+            valor = workbook.createCellStyle();
+            valor.setDataFormat(formatos.getFormat("#,##0.00"));
+        }
+    }
+}
@@ -1,19 +1,25 @@
-import org.apache.poi.ss.usermodel.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 
 public class ExcelImporter {
-    // Formatos de data com Locale para garantir formatação correta
-    private static final SimpleDateFormat DATE_FORMAT_DDMMYYYY =
-            new SimpleDateFormat("dd/MM/yyyy", new Locale("pt", "BR"));
-    private static final SimpleDateFormat DATE_FORMAT_YYYYMMDD =
-            new SimpleDateFormat("yyyy-MM-dd", new Locale("pt", "BR"));
+    // Resumo de cada importação em INFO, relatório com as rejeições em WARN (completo em DEBUG);
+    // o nível vem do log4j2.xml (propriedade financeiro.log.importacao)
+    private static final Logger LOG = LogManager.getLogger(ExcelImporter.class);
 
     // Conjuntos para identificação de linhas especiais
     private static final Set<String> MESES_RESUMO = new HashSet<>(Arrays.asList(
@@ -36,185 +42,367 @@ public class ExcelImporter {
     private static final int COLUNA_OBS = 6;
     private static final int MINIMO_CELULAS = 3; // Reduzido para 3 colunas
 
+    // Linhas por lote enviado aos threads de análise e lotes em andamento por thread
+    private static final int TAMANHO_LOTE = 512;
+    private static final int LOTES_POR_THREAD = 2;
+    // Linhas guardadas como exemplo de cada motivo de rejeição ou aviso
+    private static final int AMOSTRAS_POR_OCORRENCIA = 10;
+
+    // Fases publicadas por JMX (financeiro:type=Importacao). Leitura é o tempo do LeitorPlanilha
+    // (descompactar e interpretar o XML), análise é medida por lote nos threads do pool e
+    // validação é a consolidação de cada lote na ordem do arquivo, até a entrega ao destino
+    private static final Metricas.Histograma TEMPO_TOTAL = Metricas.histograma("Importacao", "total");
+    private static final Metricas.Histograma TEMPO_LEITURA = Metricas.histograma("Importacao", "leitura");
+    private static final Metricas.Histograma TEMPO_ANALISE = Metricas.histograma("Importacao", "analise");
+    private static final Metricas.Histograma TEMPO_VALIDACAO = Metricas.histograma("Importacao", "validacao");
+    private static final Metricas.Contador LINHAS_LIDAS = Metricas.contador("Importacao", "linhasLidas");
+    private static final Metricas.Contador TRANSACOES = Metricas.contador("Importacao", "transacoes");
+    private static final Metricas.Contador LINHAS_REJEITADAS = Metricas.contador("Importacao", "linhasRejeitadas");
+
+    /** Importa a primeira aba da planilha (.xlsx ou .xls) e devolve as transações encontradas. */
     public static List<Transacao> importarTransacoes(File arquivoExcel) throws IOException {
         List<Transacao> transacoes = new ArrayList<>();
-        int linhasIgnoradas = 0;
-        int linhasProcessadas = 0;
-        int linhasCabecalho = 0;
-
-        try (FileInputStream fis = new FileInputStream(arquivoExcel);
-             Workbook workbook = WorkbookFactory.create(fis)) {
-
-            Sheet sheet = workbook.getSheetAt(0);
-            boolean primeiroCabecalhoEncontrado = false;
-            Date ultimaDataValida = null; // Para linhas que podem continuar a transação anterior
-
-            for (Row row : sheet) {
-                linhasProcessadas++;
-                try {
-                    if (row == null || isLinhaVazia(row)) {
-                        System.out.printf("Linha %d: Ignorando linha vazia.%n", row.getRowNum() + 1);
-                        continue;
-                    }
-
-                    // Debug: Mostrar conteúdo da linha
-                    System.out.printf("Conteúdo linha %d: %s%n", row.getRowNum()+1, getConteudoLinha(row));
-
-                    // Verificação de cabeçalho
-                    if (!primeiroCabecalhoEncontrado && isLinhaCabecalhoPrincipal(row)) {
-                        System.out.printf("Linha %d: Cabeçalho principal identificado.%n", row.getRowNum() + 1);
-                        primeiroCabecalhoEncontrado = true;
-                        linhasCabecalho++;
-                        continue;
-                    }
-
-                    // Verificação de resumo
-                    if (isLinhaResumo(row)) {
-                        System.out.printf("Linha %d: Ignorando linha de resumo.%n", row.getRowNum() + 1);
-                        continue;
-                    }
-
-                    // Processar transação com tratamento especial para linhas problemáticas
-                    Transacao transacao = parseTransacaoComTolerancia(row, ultimaDataValida);
-                    if (transacao != null) {
-                        transacoes.add(transacao);
-                        ultimaDataValida = transacao.getData(); // Armazena a última data válida
-                    }
-                } catch (Exception e) {
-                    linhasIgnoradas++;
-                    System.err.printf("Erro na linha %d: %s%n", row.getRowNum() + 1, e.getMessage());
-                }
+        importarTransacoes(arquivoExcel, transacoes::add);
+        return transacoes;
+    }
+
+    /**
+     * Importa em modo streaming: a planilha é lida linha a linha pelo {@link LeitorPlanilha}
+     * e cada transação é entregue a {@code destino} assim que é reconhecida, sem carregar o
+     * arquivo inteiro em memória.
+     *
+     * A leitura acontece no thread que chamou o método, que agrupa as linhas em lotes e os
+     * envia a um pool com um thread por núcleo para a análise das células. Os lotes prontos
+     * voltam ao thread de leitura na ordem do arquivo, e é ali que as regras sequenciais
+     * (primeiro cabeçalho, data da transação anterior) são aplicadas; {@code destino} é
+     * sempre chamado desse mesmo thread e na ordem das linhas.
+     *
+     * @return quantidade de transações importadas
+     */
+    public static int importarTransacoes(File arquivoExcel, Consumer<Transacao> destino) throws IOException {
+        return importarTransacoes(arquivoExcel, destino, Progresso.NENHUM).getTransacoes();
+    }
+
+    /**
+     * Como {@link #importarTransacoes(File, Consumer)}, informando a quantidade de linhas lidas a
+     * {@code progresso}. Se o cancelamento for pedido a leitura para e é lançada
+     * {@link CancellationException}; as transações já entregues a {@code destino} devem ser descartadas.
+     *
+     * @return o diagnóstico: contagens, linhas rejeitadas por motivo (com exemplos) e tempos
+     */
+    public static DiagnosticoImportacao importarTransacoes(File arquivoExcel, Consumer<Transacao> destino,
+                                                           Progresso progresso) throws IOException {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        ExecutorService analisadores = Executors.newFixedThreadPool(threads, tarefa -> {
+            Thread thread = new Thread(tarefa, "ImportacaoExcel");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long inicio = System.nanoTime();
+        EventosJfr.Importacao evento = new EventosJfr.Importacao();
+        evento.begin();
+        DiagnosticoImportacao diagnostico = new DiagnosticoImportacao(arquivoExcel.getPath(), AMOSTRAS_POR_OCORRENCIA);
+        Importacao importacao = new Importacao(destino, progresso, analisadores, threads * LOTES_POR_THREAD, diagnostico);
+        try {
+            LeitorPlanilha.ler(arquivoExcel, importacao);
+            importacao.concluir();
+            diagnostico.nanosTotal = System.nanoTime() - inicio;
+            diagnostico.nanosLeitura = diagnostico.nanosTotal - importacao.nanosForaDaLeitura;
+            diagnostico.nanosAnalise = importacao.nanosAnalise.sum();
+            TEMPO_TOTAL.registrar(diagnostico.nanosTotal);
+            TEMPO_LEITURA.registrar(diagnostico.nanosLeitura);
+            evento.concluida = true;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            analisadores.shutdownNow();
+            if (evento.shouldCommit()) {
+                evento.arquivo = arquivoExcel.getPath();
+                evento.linhasLidas = diagnostico.linhasLidas;
+                evento.transacoes = diagnostico.transacoes;
+                evento.linhasRejeitadas = diagnostico.getRejeitadas();
+                evento.linhasPorSegundo = diagnostico.linhasLidas * 1e9 / Math.max(1, System.nanoTime() - inicio);
+                evento.commit();
             }
         }
 
-        System.out.println("\n--- RESUMO DA IMPORTAÇÃO ---");
-        System.out.printf("Total de linhas processadas: %d%n", linhasProcessadas);
-        System.out.printf("Linhas de cabeçalho: %d%n", linhasCabecalho);
-        System.out.printf("Transações importadas: %d%n", transacoes.size());
-        System.out.printf("Linhas ignoradas: %d%n", linhasIgnoradas);
-        System.out.println("----------------------------");
+        LOG.info("Importação de {}: {} linhas lidas, {} transações, {} rejeitadas, {} avisos em {} ms",
+                arquivoExcel.getName(), diagnostico.linhasLidas, diagnostico.transacoes,
+                diagnostico.getRejeitadas(), diagnostico.getAvisos(), diagnostico.nanosTotal / 1_000_000);
+        if (diagnostico.getRejeitadas() > 0) {
+            LOG.warn("Linhas rejeitadas na importação de {}:\n{}", arquivoExcel.getName(), diagnostico);
+        } else {
+            LOG.debug("Diagnóstico da importação de {}:\n{}", arquivoExcel.getName(), diagnostico);
+        }
+        return diagnostico;
+    }
 
-        return transacoes;
+    /**
+     * Resultado da análise de uma linha, feita fora de ordem pelos threads do pool. Tudo o que
+     * depende das linhas anteriores fica para {@link Importacao#consolidar}.
+     */
+    private static final class LinhaAnalisada {
+        private int numero;
+        private LinhaPlanilha origem; // para o texto das amostras do diagnóstico, montado só se preciso
+        private boolean vazia;
+        private boolean cabecalho;
+        private boolean resumo;
+        private boolean poucasCelulas; // aviso: a linha é processada mesmo assim
+        private Transacao transacao;
+        private boolean usaDataAnterior; // célula de data vazia: a data vem da transação anterior
+        private DiagnosticoImportacao.Ocorrencia rejeicao;
+        private String erro;
+    }
+
+    private static LinhaAnalisada analisar(LinhaPlanilha row) {
+        LinhaAnalisada linha = new LinhaAnalisada();
+        linha.numero = row.getNumero() + 1;
+        linha.origem = row;
+        try {
+            linha.vazia = isLinhaVazia(row);
+            if (linha.vazia) {
+                return linha;
+            }
+            linha.cabecalho = isLinhaCabecalhoPrincipal(row);
+            linha.resumo = isLinhaResumo(row);
+            if (linha.resumo) {
+                return linha;
+            }
+
+            // Verificação flexível de células
+            linha.poucasCelulas = row.getCelulasFisicas() < MINIMO_CELULAS;
+            // Mesmo um possível cabeçalho é analisado: só o primeiro deles é descartado
+            linha.usaDataAnterior = row.isVazia(COLUNA_DATA);
+            linha.transacao = parseTransacaoComTolerancia(row);
+        } catch (ParseException e) {
+            linha.rejeicao = DiagnosticoImportacao.Ocorrencia.DATA_INVALIDA;
+            linha.erro = e.getMessage();
+        } catch (NumberFormatException e) {
+            linha.rejeicao = DiagnosticoImportacao.Ocorrencia.VALOR_INVALIDO;
+            linha.erro = e.getMessage();
+        } catch (Exception e) {
+            linha.rejeicao = DiagnosticoImportacao.Ocorrencia.ERRO;
+            linha.erro = e.toString();
+        }
+        return linha;
     }
 
-    private static Transacao parseTransacaoComTolerancia(Row row, Date ultimaDataValida) throws ParseException {
-        // Verificação flexível de células
-        if (row.getPhysicalNumberOfCells() < MINIMO_CELULAS) {
-            System.out.printf("Aviso: Linha %d tem apenas %d células. Tentando processar mesmo assim.%n",
-                    row.getRowNum() + 1, row.getPhysicalNumberOfCells());
+    /** Estado da importação de uma planilha; recebe as linhas na ordem em que aparecem no arquivo. */
+    private static final class Importacao implements Consumer<LinhaPlanilha> {
+        private final Consumer<Transacao> destino;
+        private final Progresso progresso;
+        private final ExecutorService analisadores;
+        private final int maximoLotesPendentes;
+        private final ArrayDeque<Future<LinhaAnalisada[]>> pendentes = new ArrayDeque<>();
+        private List<LinhaPlanilha> lote = new ArrayList<>(TAMANHO_LOTE);
+
+        private final DiagnosticoImportacao diagnostico;
+        private boolean primeiroCabecalhoEncontrado = false;
+        private Date ultimaDataValida = null; // Para linhas que podem continuar a transação anterior
+        // Tempo do thread de leitura gasto com os lotes (envio, espera e consolidação)
+        private long nanosForaDaLeitura = 0;
+        // Tempo de análise somado entre os threads do pool
+        private final LongAdder nanosAnalise = new LongAdder();
+
+        Importacao(Consumer<Transacao> destino, Progresso progresso, ExecutorService analisadores,
+                   int maximoLotesPendentes, DiagnosticoImportacao diagnostico) {
+            this.destino = destino;
+            this.progresso = progresso;
+            this.analisadores = analisadores;
+            this.maximoLotesPendentes = maximoLotesPendentes;
+            this.diagnostico = diagnostico;
+        }
+
+        @Override
+        public void accept(LinhaPlanilha row) {
+            lote.add(row);
+            if (lote.size() == TAMANHO_LOTE) {
+                enviarLote();
+            }
+        }
+
+        void concluir() {
+            enviarLote();
+            long inicio = System.nanoTime();
+            while (!pendentes.isEmpty()) {
+                consolidarLote(pendentes.poll());
+            }
+            nanosForaDaLeitura += System.nanoTime() - inicio;
+        }
+
+        private void enviarLote() {
+            long inicio = System.nanoTime();
+            try {
+                enviarEConsolidar();
+            } finally {
+                nanosForaDaLeitura += System.nanoTime() - inicio;
+            }
         }
 
+        private void enviarEConsolidar() {
+            if (progresso.isCancelado()) {
+                throw new CancellationException("Importação cancelada");
+            }
+            if (lote.isEmpty()) {
+                return;
+            }
+            LinhaPlanilha[] linhas = lote.toArray(new LinhaPlanilha[0]);
+            lote = new ArrayList<>(TAMANHO_LOTE);
+            pendentes.add(analisadores.submit(() -> {
+                long inicio = System.nanoTime();
+                LinhaAnalisada[] analisadas = new LinhaAnalisada[linhas.length];
+                for (int i = 0; i < linhas.length; i++) {
+                    analisadas[i] = analisar(linhas[i]);
+                }
+                long nanos = System.nanoTime() - inicio;
+                TEMPO_ANALISE.registrar(nanos);
+                nanosAnalise.add(nanos);
+                return analisadas;
+            }));
+
+            // Consolida o que já ficou pronto e, com a fila cheia, segura a leitura até o lote mais antigo terminar
+            while (!pendentes.isEmpty()
+                    && (pendentes.size() > maximoLotesPendentes || pendentes.peek().isDone())) {
+                consolidarLote(pendentes.poll());
+            }
+        }
+
+        private void consolidarLote(Future<LinhaAnalisada[]> pendente) {
+            LinhaAnalisada[] linhas;
+            try {
+                linhas = pendente.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("Importação interrompida"));
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Falha ao analisar as linhas da planilha", e.getCause());
+            }
+            long inicio = System.nanoTime();
+            int lidas = diagnostico.linhasLidas;
+            int importadas = diagnostico.transacoes;
+            int rejeitadas = diagnostico.getRejeitadas();
+            for (LinhaAnalisada linha : linhas) {
+                consolidar(linha);
+            }
+            long nanos = System.nanoTime() - inicio;
+            TEMPO_VALIDACAO.registrar(nanos);
+            diagnostico.nanosValidacao += nanos;
+            LINHAS_LIDAS.somar(diagnostico.linhasLidas - lidas);
+            TRANSACOES.somar(diagnostico.transacoes - importadas);
+            LINHAS_REJEITADAS.somar(diagnostico.getRejeitadas() - rejeitadas);
+            progresso.informar(diagnostico.linhasLidas + " linhas lidas, " + diagnostico.transacoes + " transações", -1);
+        }
+
+        // Só conta: texto de linha é montado apenas para as amostras do diagnóstico
+        private void consolidar(LinhaAnalisada linha) {
+            diagnostico.linhasLidas++;
+            if (linha.vazia) {
+                diagnostico.linhasVazias++;
+                return;
+            }
+
+            // Verificação de cabeçalho
+            if (!primeiroCabecalhoEncontrado && linha.cabecalho) {
+                LOG.debug("Cabeçalho principal na linha {}", linha.numero);
+                primeiroCabecalhoEncontrado = true;
+                diagnostico.cabecalhos++;
+                return;
+            }
+
+            // Verificação de resumo
+            if (linha.resumo) {
+                diagnostico.resumos++;
+                return;
+            }
+
+            if (linha.poucasCelulas) {
+                diagnostico.registrar(DiagnosticoImportacao.Ocorrencia.POUCAS_CELULAS, linha.numero, linha.origem, null);
+            }
+            if (linha.rejeicao == null && linha.usaDataAnterior) {
+                if (ultimaDataValida != null) {
+                    // Usa a última data válida se a célula estiver vazia
+                    linha.transacao.setData(ultimaDataValida);
+                    diagnostico.registrar(DiagnosticoImportacao.Ocorrencia.DATA_ANTERIOR, linha.numero, linha.origem, null);
+                } else {
+                    linha.rejeicao = DiagnosticoImportacao.Ocorrencia.SEM_DATA;
+                    linha.erro = "Célula de data não encontrada e não há data anterior disponível";
+                }
+            }
+            if (linha.rejeicao != null) {
+                diagnostico.registrar(linha.rejeicao, linha.numero, linha.origem, linha.erro);
+                return;
+            }
+
+            destino.accept(linha.transacao);
+            diagnostico.transacoes++;
+            ultimaDataValida = linha.transacao.getData(); // Armazena a última data válida
+        }
+    }
+
+    /** Monta a transação da linha; com a célula de data vazia a data fica nula, para ser completada na consolidação. */
+    private static Transacao parseTransacaoComTolerancia(LinhaPlanilha row) throws ParseException {
         Transacao transacao = new Transacao();
 
         // Data - tratamento mais tolerante
-        Cell dataCell = row.getCell(COLUNA_DATA, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-        if (dataCell == null) {
-            if (ultimaDataValida != null) {
-                // Usa a última data válida se a célula estiver vazia
-                transacao.setData(ultimaDataValida);
-                System.out.printf("Linha %d: Usando data da transação anterior.%n", row.getRowNum() + 1);
-            } else {
-                throw new ParseException("Célula de data não encontrada e não há data anterior disponível", COLUNA_DATA);
-            }
-        } else {
-            transacao.setData(parseDataFlexivel(dataCell));
+        if (!row.isVazia(COLUNA_DATA)) {
+            transacao.setData(parseDataFlexivel(row, COLUNA_DATA));
         }
 
         // Tipo - com valor padrão
-        transacao.setTipo(parseTipo(row.getCell(COLUNA_TIPO, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL)));
+        transacao.setTipo(parseTipo(row, COLUNA_TIPO));
 
         // Descrição - nunca nula
-        transacao.setDescricao(parseDescricao(row.getCell(COLUNA_DESCRICAO, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL)));
+        transacao.setDescricao(parseDescricao(row, COLUNA_DESCRICAO));
 
         // Valor - com tratamento de erro específico
-        Cell valorCell = row.getCell(COLUNA_VALOR, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-        if (valorCell == null) {
-            transacao.setValor(0.0);
-        } else {
-            transacao.setValor(parseValor(valorCell));
-        }
+        transacao.setValorCentavos(parseValor(row, COLUNA_VALOR));
 
         // Forma de Pagamento - com valor padrão
-        transacao.setFormaPagamento(parseFormaPagamento(row.getCell(COLUNA_PAGAMENTO, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL)));
+        transacao.setFormaPagamento(parseFormaPagamento(row, COLUNA_PAGAMENTO));
 
         // Observação - opcional
-        transacao.setObs(parseObservacao(row.getCell(COLUNA_OBS, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL)));
+        transacao.setObs(parseObservacao(row, COLUNA_OBS));
 
         return transacao;
     }
 
-    private static Date parseDataFlexivel(Cell cell) throws ParseException {
-        if (cell == null || cell.getCellType() == CellType.BLANK) {
+    private static Date parseDataFlexivel(LinhaPlanilha row, int coluna) throws ParseException {
+        if (row.isVazia(coluna)) {
             throw new ParseException("Célula de data vazia", 0);
         }
 
         // 1. Tentar como data numérica do Excel
-        if (cell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(cell)) {
-            return cell.getDateCellValue();
+        if (row.isData(coluna)) {
+            return row.getData(coluna);
         }
 
-        // 2. Tentar como string em vários formatos
-        String dataStr = cell.toString().trim();
-        if (dataStr.isEmpty()) {
-            throw new ParseException("Texto de data vazio", 0);
+        // 2. Tentar como texto em dd/MM/yyyy, yyyy-MM-dd ou ddMMyyyy
+        String dataStr = row.getTexto(coluna);
+        int epochDay = Datas.converter(dataStr);
+        if (epochDay == Datas.SEM_DATA) {
+            throw new ParseException("Formato de data não reconhecido: " + dataStr.trim(), 0);
         }
-
-        // Remover possíveis espaços ou caracteres estranhos
-        dataStr = dataStr.replaceAll("[^\\d/\\-]", "");
-
-        try {
-            // Tentar dd/MM/yyyy
-            if (dataStr.matches("\\d{1,2}/\\d{1,2}/\\d{4}")) {
-                return DATE_FORMAT_DDMMYYYY.parse(dataStr);
-            }
-            // Tentar yyyy-MM-dd
-            if (dataStr.matches("\\d{4}-\\d{1,2}-\\d{1,2}")) {
-                return DATE_FORMAT_YYYYMMDD.parse(dataStr);
-            }
-            // Tentar outros formatos comuns
-            if (dataStr.matches("\\d{8}")) { // ddmmyyyy
-                String formatted = dataStr.substring(0, 2) + "/" +
-                        dataStr.substring(2, 4) + "/" +
-                        dataStr.substring(4);
-                return DATE_FORMAT_DDMMYYYY.parse(formatted);
-            }
-        } catch (ParseException e) {
-            throw new ParseException("Formato de data inválido: " + dataStr, 0);
-        }
-
-        throw new ParseException("Formato de data não reconhecido: " + dataStr, 0);
+        return Datas.paraDate(epochDay);
     }
 
-    private static String getConteudoLinha(Row row) {
-        if (row == null) return "[linha nula]";
-
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < row.getLastCellNum(); i++) {
-            Cell cell = row.getCell(i, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-            sb.append(cell != null ? cell.toString() : "[vazio]").append(" | ");
-        }
-        return sb.toString();
-    }
-
-    private static boolean isLinhaVazia(Row row) {
+    private static boolean isLinhaVazia(LinhaPlanilha row) {
         if (row == null) return true;
 
         for (int i = 0; i <= COLUNA_OBS; i++) {
-            Cell cell = row.getCell(i, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-            if (cell != null && cell.getCellType() != CellType.BLANK && !cell.toString().trim().isEmpty()) {
+            if (!row.isVazia(i) && !row.getTexto(i).trim().isEmpty()) {
                 return false;
             }
         }
         return true;
     }
 
-    private static boolean isLinhaCabecalhoPrincipal(Row row) {
+    private static boolean isLinhaCabecalhoPrincipal(LinhaPlanilha row) {
         // Verifica se é o cabeçalho principal (linha com todos os títulos)
         int colunasCabecalho = 0;
         for (int i = 0; i <= COLUNA_OBS; i++) {
-            Cell cell = row.getCell(i, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-            if (cell != null) {
-                String valor = cell.toString().trim().toUpperCase();
+            if (!row.isVazia(i)) {
+                String valor = row.getTexto(i).trim().toUpperCase();
                 if (PALAVRAS_CHAVE_CABECALHO.contains(valor)) {
                     colunasCabecalho++;
                 }
@@ -223,53 +411,42 @@ public class ExcelImporter {
         return colunasCabecalho >= 3; // Pelo menos 3 colunas com títulos
     }
 
-    private static boolean isLinhaResumo(Row row) {
-        Cell primeiraCelula = row.getCell(0, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-        return primeiraCelula != null &&
-                MESES_RESUMO.contains(primeiraCelula.toString().trim().toUpperCase());
+    private static boolean isLinhaResumo(LinhaPlanilha row) {
+        return !row.isVazia(0) &&
+                MESES_RESUMO.contains(row.getTexto(0).trim().toUpperCase());
     }
 
-    private static String parseTipo(Cell cell) {
-        if (cell == null || cell.getCellType() == CellType.BLANK) {
+    private static String parseTipo(LinhaPlanilha row, int coluna) {
+        if (row.isVazia(coluna)) {
             return "SAÍDA"; // Valor padrão
         }
 
-        String valor = cell.toString().trim().toUpperCase();
-        return valor.matches(".*(ENTRADA|RECEITA|CR[ÉE]DITO).*") ? "ENTRADA" : "SAÍDA";
+        String valor = row.getTexto(coluna).trim().toUpperCase();
+        return valor.contains("ENTRADA") || valor.contains("RECEITA")
+                || valor.contains("CRÉDITO") || valor.contains("CREDITO") ? "ENTRADA" : "SAÍDA";
     }
 
-    private static String parseDescricao(Cell cell) {
-        return cell != null ? cell.toString().trim() : "";
+    private static String parseDescricao(LinhaPlanilha row, int coluna) {
+        return !row.isVazia(coluna) ? row.getTexto(coluna).trim() : "";
     }
 
-    private static double parseValor(Cell cell) throws NumberFormatException {
-        if (cell == null || cell.getCellType() == CellType.BLANK) {
-            return 0.0;
+    private static long parseValor(LinhaPlanilha row, int coluna) throws NumberFormatException {
+        if (row.isVazia(coluna)) {
+            return 0;
         }
 
-        try {
-            if (cell.getCellType() == CellType.NUMERIC) {
-                return cell.getNumericCellValue();
-            }
-
-            String valorStr = cell.toString()
-                    .replaceAll("[R\\$]", "")
-                    .replaceAll("\\.", "")
-                    .replaceAll(",", ".")
-                    .trim();
-
-            return valorStr.isEmpty() ? 0.0 : Double.parseDouble(valorStr);
-        } catch (Exception e) {
-            throw new NumberFormatException("Valor inválido: " + cell.toString());
+        if (row.isNumero(coluna)) {
+            return Moeda.deDouble(row.getNumero(coluna));
         }
+        return Moeda.converterPtBr(row.getTexto(coluna));
     }
 
-    private static String parseFormaPagamento(Cell cell) {
-        if (cell == null || cell.getCellType() == CellType.BLANK) {
+    private static String parseFormaPagamento(LinhaPlanilha row, int coluna) {
+        if (row.isVazia(coluna)) {
             return "OUTROS";
         }
 
-        String valor = cell.toString().toUpperCase().trim();
+        String valor = row.getTexto(coluna).toUpperCase().trim();
 
         if (valor.contains("DÉBITO") || valor.contains("DEBITO")) return "DÉBITO";
         if (valor.contains("CRÉDITO") || valor.contains("CREDITO")) return "CRÉDITO";
@@ -281,7 +458,7 @@ public class ExcelImporter {
         return "OUTROS";
     }
 
-    private static String parseObservacao(Cell cell) {
-        return cell != null ? cell.toString().trim() : "";
+    private static String parseObservacao(LinhaPlanilha row, int coluna) {
+        return !row.isVazia(coluna) ? row.getTexto(coluna).trim() : "";
     }
 }
\ No newline at end of file
@@ -1,16 +1,19 @@
 import com.formdev.flatlaf.FlatLightLaf;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.AbstractTableModel;
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.io.File;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 
 public class FinanceiroGUI extends JFrame {
 
@@ -24,6 +27,12 @@ public class FinanceiroGUI extends JFrame {
     private static final Color CARD_BACKGROUND = new Color(255, 255, 255);
     private static final Color BORDER_COLOR = new Color(220, 220, 220);
 
+    // Espera após a última mudança nos filtros antes de recarregar a tabela
+    private static final int ATRASO_FILTRO_MS = 150;
+
+    // Última fase da importação (as anteriores são medidas no ExcelImporter)
+    private static final Metricas.Histograma TEMPO_PERSISTENCIA = Metricas.histograma("Importacao", "persistencia");
+
     // Fontes modernas
     private static final Font TITLE_FONT = new Font("Segoe UI", Font.BOLD, 24);
     private static final Font SUBTITLE_FONT = new Font("Segoe UI", Font.BOLD, 16);
@@ -37,7 +46,7 @@ public class FinanceiroGUI extends JFrame {
     // Componentes da interface
     private final TransacaoDAO transacaoDAO;
     private final JTable tabela;
-    private final DefaultTableModel modeloTabela;
+    private final ModeloTabelaTransacoes modeloTabela;
 
     private final JButton btnNovaTransacao;
     private final JButton btnEditarTransacao;
@@ -46,12 +55,23 @@ public class FinanceiroGUI extends JFrame {
     private final JButton btnGrafico;
     private final JButton btnImportarExcel;
     private final JButton btnExportarPDF;
+    private final JButton btnExportarExcel;
 
     private final JLabel lblSaldo;
     private final JLabel lblEntradas;
     private final JLabel lblSaidas;
     private final JComboBox<String> cmbFiltroMes;
     private final JComboBox<String> cmbFiltroAno;
+    private final JTextField txtBusca;
+
+    private final Timer temporizadorFiltro;
+    private SwingWorker<?, ?> carregamentoAtual;
+
+    // Filtro e versão dos dados do conteúdo atual da tabela (versão -1: nada carregado)
+    private Integer mesExibido;
+    private int anoExibido;
+    private String buscaExibida = "";
+    private long versaoExibida = -1;
 
     public FinanceiroGUI() {
         try {
@@ -76,17 +96,22 @@ public class FinanceiroGUI extends JFrame {
         btnGrafico = criarBotao("Gráfico", SUCCESS_COLOR);
         btnImportarExcel = criarBotao("Importar Excel", INFO_COLOR);
         btnExportarPDF = criarBotao("Exportar PDF", new Color(108, 117, 125));
+        btnExportarExcel = criarBotao("Exportar Excel", new Color(33, 115, 70));
 
         cmbFiltroMes = criarComboMes();
         cmbFiltroAno = criarComboAno();
+        txtBusca = criarCampoBusca();
+
+        lblSaldo = criarLabelValor(0, PRIMARY_COLOR);
+        lblEntradas = criarLabelValor(0, SUCCESS_COLOR);
+        lblSaidas = criarLabelValor(0, DANGER_COLOR);
 
-        lblSaldo = criarLabelValor("0.00", PRIMARY_COLOR);
-        lblEntradas = criarLabelValor("0.00", SUCCESS_COLOR);
-        lblSaidas = criarLabelValor("0.00", DANGER_COLOR);
+        temporizadorFiltro = new Timer(ATRASO_FILTRO_MS, e -> aplicarFiltro());
+        temporizadorFiltro.setRepeats(false);
 
         configurarListeners();
         organizarLayout();
-        carregarTransacoesNaTabela(null, -1);
+        carregarTransacoesNaTabela(null, -1, "");
     }
 
     private void configurarJanelaPrincipal() {
@@ -97,14 +122,8 @@ public class FinanceiroGUI extends JFrame {
         setBackground(SECONDARY_COLOR);
     }
 
-    private DefaultTableModel criarModeloTabela() {
-        return new DefaultTableModel(
-                new Object[] {"ID", "Tipo", "Data", "Descrição", "Valor", "Forma Pagamento"}, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+    private ModeloTabelaTransacoes criarModeloTabela() {
+        return new ModeloTabelaTransacoes();
     }
 
     private JTable criarTabela() {
@@ -146,8 +165,8 @@ public class FinanceiroGUI extends JFrame {
         return botao;
     }
 
-    private JLabel criarLabelValor(String valor, Color cor) {
-        JLabel label = new JLabel("R$ " + valor, SwingConstants.RIGHT);
+    private JLabel criarLabelValor(long centavos, Color cor) {
+        JLabel label = new JLabel(Moeda.formatar(centavos), SwingConstants.RIGHT);
         label.setFont(VALUE_FONT);
         label.setForeground(cor);
         label.setHorizontalAlignment(SwingConstants.RIGHT);
@@ -171,6 +190,15 @@ public class FinanceiroGUI extends JFrame {
         return combo;
     }
 
+    private JTextField criarCampoBusca() {
+        JTextField campo = new JTextField(18);
+        campo.setFont(COMBO_BOX_FONT);
+        campo.setToolTipText("Busca na descrição e na observação (sem diferenciar acentos)");
+        campo.putClientProperty("JTextField.placeholderText", "Buscar...");
+        campo.putClientProperty("JTextField.showClearButton", true);
+        return campo;
+    }
+
     private JComboBox<String> criarComboAno() {
         JComboBox<String> combo = new JComboBox<>();
         combo.setFont(COMBO_BOX_FONT);
@@ -201,21 +229,29 @@ public class FinanceiroGUI extends JFrame {
         btnGrafico.addActionListener(e -> abrirGraficoComparativo());
         btnImportarExcel.addActionListener(e -> importarExcel());
         btnExportarPDF.addActionListener(e -> exportarPDF());
+        btnExportarExcel.addActionListener(e -> exportarExcel());
 
-        ActionListener filtroListener = e -> {
-            try {
-                int mesSelecionado = cmbFiltroMes.getSelectedIndex();
-                int anoSelecionado = "Todos".equals(cmbFiltroAno.getSelectedItem()) ? -1 :
-                        Integer.parseInt((String) cmbFiltroAno.getSelectedItem());
-                carregarTransacoesNaTabela(mesSelecionado == 0 ? null : mesSelecionado, anoSelecionado);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this,
-                        "Erro ao aplicar filtro: " + ex.getMessage(),
-                        "Erro de Filtro", JOptionPane.ERROR_MESSAGE);
-            }
-        };
+        // Mudanças seguidas nos combos (ex.: mês e depois ano) geram um único recarregamento
+        ActionListener filtroListener = e -> temporizadorFiltro.restart();
         cmbFiltroMes.addActionListener(filtroListener);
         cmbFiltroAno.addActionListener(filtroListener);
+        // A busca também espera a digitação parar
+        txtBusca.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                temporizadorFiltro.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                temporizadorFiltro.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                temporizadorFiltro.restart();
+            }
+        });
     }
 
     private void organizarLayout() {
@@ -240,6 +276,7 @@ public class FinanceiroGUI extends JFrame {
         panelFiltros.add(new JLabel("Filtrar por:"));
         panelFiltros.add(cmbFiltroMes);
         panelFiltros.add(cmbFiltroAno);
+        panelFiltros.add(txtBusca);
         panelHeader.add(panelFiltros, BorderLayout.CENTER);
 
         // Painel de resumo financeiro
@@ -272,6 +309,7 @@ public class FinanceiroGUI extends JFrame {
         panelBotoes.add(btnGrafico);
         panelBotoes.add(btnImportarExcel);
         panelBotoes.add(btnExportarPDF);
+        panelBotoes.add(btnExportarExcel);
         mainPanel.add(panelBotoes, BorderLayout.SOUTH);
 
         setContentPane(mainPanel);
@@ -368,7 +406,7 @@ public class FinanceiroGUI extends JFrame {
         }
 
         try {
-            int id = (int) modeloTabela.getValueAt(linha, 0);
+            int id = modeloTabela.getId(linha);
             Transacao t = transacaoDAO.buscarPorId(id);
 
             if (t != null) {
@@ -406,7 +444,7 @@ public class FinanceiroGUI extends JFrame {
 
         if (confirmar == JOptionPane.YES_OPTION) {
             try {
-                int id = (int) modeloTabela.getValueAt(linha, 0);
+                int id = modeloTabela.getId(linha);
                 transacaoDAO.excluir(id);
                 atualizarTabelaComFiltrosAtuais();
                 JOptionPane.showMessageDialog(this,
@@ -436,34 +474,24 @@ public class FinanceiroGUI extends JFrame {
 
         if (confirmar == JOptionPane.YES_OPTION) {
             try {
-                List<Integer> idsComErro = new ArrayList<>();
-                List<Integer> idsExcluidosComSucesso = new ArrayList<>();
-
-                List<Integer> idsParaExcluir = new ArrayList<>();
-                for (int linha : linhasSelecionadas) {
-                    idsParaExcluir.add((int) modeloTabela.getValueAt(linha, 0));
+                int[] idsParaExcluir = new int[linhasSelecionadas.length];
+                for (int i = 0; i < linhasSelecionadas.length; i++) {
+                    idsParaExcluir[i] = modeloTabela.getId(linhasSelecionadas[i]);
                 }
 
-                for (int id : idsParaExcluir) {
-                    try {
-                        transacaoDAO.excluir(id);
-                        idsExcluidosComSucesso.add(id);
-                    } catch (Exception e) {
-                        idsComErro.add(id);
-                        System.err.println("Erro ao excluir transação ID " + id + ": " + e.getMessage());
-                    }
-                }
+                int excluidas = transacaoDAO.excluirVarios(idsParaExcluir);
+                int naoEncontradas = idsParaExcluir.length - excluidas;
 
                 atualizarTabelaComFiltrosAtuais();
 
-                if (idsComErro.isEmpty()) {
+                if (naoEncontradas == 0) {
                     JOptionPane.showMessageDialog(this,
-                            idsExcluidosComSucesso.size() + " transações foram excluídas com sucesso.",
+                            excluidas + " transações foram excluídas com sucesso.",
                             "Exclusão Concluída", JOptionPane.INFORMATION_MESSAGE);
                 } else {
                     JOptionPane.showMessageDialog(this,
-                            idsExcluidosComSucesso.size() + " transações foram excluídas com sucesso.\n" +
-                                    idsComErro.size() + " transações não puderam ser excluídas devido a erros.",
+                            excluidas + " transações foram excluídas com sucesso.\n" +
+                                    naoEncontradas + " transações não foram encontradas e não puderam ser excluídas.",
                             "Exclusão Parcial", JOptionPane.WARNING_MESSAGE);
                 }
             } catch (Exception e) {
@@ -475,14 +503,13 @@ public class FinanceiroGUI extends JFrame {
     }
 
     private void abrirGraficoComparativo() {
-        List<Transacao> transacoes = transacaoDAO.listarTodos();
-        if (transacoes.isEmpty()) {
+        if (transacaoDAO.calcularResumo(null, -1).getQuantidade() == 0) {
             JOptionPane.showMessageDialog(this,
                     "Não há transações cadastradas para gerar o gráfico.",
                     "Dados Insuficientes", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
-        GraficoComparativo.exibirGrafico(transacoes);
+        GraficoComparativo.exibirGrafico(transacaoDAO);
     }
 
     private void importarExcel() {
@@ -500,48 +527,83 @@ public class FinanceiroGUI extends JFrame {
             return;
         }
 
-        try {
-            List<Transacao> transacoesImportadas = ExcelImporter.importarTransacoes(arquivoExcel);
+        List<Transacao> lidas = new ArrayList<>();
+        DialogoProgresso.executar(this, "Importando " + arquivoExcel.getName(),
+                new DialogoProgresso.Tarefa<DiagnosticoImportacao, Void>() {
+                    @Override
+                    protected DiagnosticoImportacao doInBackground() throws Exception {
+                        return ExcelImporter.importarTransacoes(arquivoExcel, lidas::add, this);
+                    }
 
-            if (transacoesImportadas.isEmpty()) {
-                JOptionPane.showMessageDialog(this,
-                        "Nenhuma transação válida foi encontrada no arquivo selecionado.",
-                        "Importação Vazia", JOptionPane.WARNING_MESSAGE);
-                return;
-            }
+                    @Override
+                    protected void concluir() {
+                        if (isCancelled()) {
+                            return;
+                        }
+                        try {
+                            revisarTransacoesImportadas(lidas, get());
+                        } catch (ExecutionException e) {
+                            if (e.getCause() instanceof IOException) {
+                                JOptionPane.showMessageDialog(FinanceiroGUI.this,
+                                        "Erro ao importar arquivo Excel: " + e.getCause().getMessage() +
+                                                "\nVerifique se o arquivo está no formato correto e sem erros de leitura.",
+                                        "Erro de Importação", JOptionPane.ERROR_MESSAGE);
+                            } else {
+                                JOptionPane.showMessageDialog(FinanceiroGUI.this,
+                                        "Erro inesperado durante a importação: " + e.getCause().getMessage(),
+                                        "Erro", JOptionPane.ERROR_MESSAGE);
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+    }
 
-            int visualizar = JOptionPane.showConfirmDialog(this,
-                    "Foram encontradas " + transacoesImportadas.size() + " transações.\n" +
-                            "Deseja visualizá-las antes de salvar no banco de dados?",
-                    "Visualizar Transações Importadas", JOptionPane.YES_NO_OPTION);
+    private void revisarTransacoesImportadas(List<Transacao> transacoesImportadas, DiagnosticoImportacao diagnostico) {
+        // Linhas rejeitadas ou com aviso são mostradas antes de decidir o que fazer com o resto
+        if (transacoesImportadas.isEmpty() || diagnostico.getRejeitadas() > 0 || diagnostico.getAvisos() > 0) {
+            exibirDiagnostico(diagnostico);
+        }
 
-            if (visualizar == JOptionPane.YES_OPTION) {
-                exibirTransacoesImportadas(transacoesImportadas);
-            }
+        if (transacoesImportadas.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                    "Nenhuma transação válida foi encontrada no arquivo selecionado.",
+                    "Importação Vazia", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
 
-            int salvar = JOptionPane.showConfirmDialog(this,
-                    "Deseja salvar as " + transacoesImportadas.size() + " transações importadas no sistema?",
-                    "Salvar Transações", JOptionPane.YES_NO_OPTION);
+        int visualizar = JOptionPane.showConfirmDialog(this,
+                "Foram encontradas " + transacoesImportadas.size() + " transações.\n" +
+                        "Deseja visualizá-las antes de salvar no banco de dados?",
+                "Visualizar Transações Importadas", JOptionPane.YES_NO_OPTION);
 
-            if (salvar == JOptionPane.YES_OPTION) {
-                int salvas = salvarTransacoesImportadas(transacoesImportadas);
-                atualizarTabelaComFiltrosAtuais();
-                JOptionPane.showMessageDialog(this,
-                        salvas + " transações foram importadas com sucesso!",
-                        "Importação Concluída", JOptionPane.INFORMATION_MESSAGE);
-            }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Erro ao importar arquivo Excel: " + e.getMessage() +
-                            "\nVerifique se o arquivo está no formato correto e sem erros de leitura.",
-                    "Erro de Importação", JOptionPane.ERROR_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this,
-                    "Erro inesperado durante a importação: " + e.getMessage(),
-                    "Erro", JOptionPane.ERROR_MESSAGE);
+        if (visualizar == JOptionPane.YES_OPTION) {
+            exibirTransacoesImportadas(transacoesImportadas);
+        }
+
+        int salvar = JOptionPane.showConfirmDialog(this,
+                "Deseja salvar as " + transacoesImportadas.size() + " transações importadas no sistema?",
+                "Salvar Transações", JOptionPane.YES_NO_OPTION);
+
+        if (salvar == JOptionPane.YES_OPTION) {
+            salvarTransacoesImportadas(transacoesImportadas);
         }
     }
 
+    private void exibirDiagnostico(DiagnosticoImportacao diagnostico) {
+        JTextArea texto = new JTextArea(diagnostico.relatorio());
+        texto.setEditable(false);
+        texto.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        texto.setCaretPosition(0);
+
+        JScrollPane scrollPane = new JScrollPane(texto);
+        scrollPane.setPreferredSize(new Dimension(750, 400));
+
+        JOptionPane.showMessageDialog(this, scrollPane, "Diagnóstico da Importação",
+                diagnostico.getRejeitadas() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+    }
+
     private File selecionarArquivoExcel() {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Selecionar Arquivo Excel para Importação");
@@ -554,20 +616,43 @@ public class FinanceiroGUI extends JFrame {
 
     private void exibirTransacoesImportadas(List<Transacao> transacoes) {
         String[] colunas = {"Tipo", "Data", "Descrição", "Valor", "Forma Pagamento"};
-        Object[][] dados = new Object[transacoes.size()][5];
 
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
+        // Como na tabela principal, só as linhas visíveis são formatadas
+        AbstractTableModel modelo = new AbstractTableModel() {
+            @Override
+            public int getRowCount() {
+                return transacoes.size();
+            }
 
-        for (int i = 0; i < transacoes.size(); i++) {
-            Transacao t = transacoes.get(i);
-            dados[i][0] = t.getTipo();
-            dados[i][1] = sdf.format(t.getData());
-            dados[i][2] = t.getDescricao();
-            dados[i][3] = String.format("R$ %.2f", t.getValor());
-            dados[i][4] = t.getFormaPagamento();
-        }
+            @Override
+            public int getColumnCount() {
+                return colunas.length;
+            }
 
-        JTable tabelaVisualizacao = new JTable(dados, colunas);
+            @Override
+            public String getColumnName(int coluna) {
+                return colunas[coluna];
+            }
+
+            @Override
+            public Object getValueAt(int linha, int coluna) {
+                Transacao t = transacoes.get(linha);
+                switch (coluna) {
+                    case 0:
+                        return t.getTipo();
+                    case 1:
+                        return Datas.formatar(Datas.paraEpochDay(t.getData()));
+                    case 2:
+                        return t.getDescricao();
+                    case 3:
+                        return Moeda.formatar(t.getValorCentavos());
+                    default:
+                        return t.getFormaPagamento();
+                }
+            }
+        };
+
+        JTable tabelaVisualizacao = new JTable(modelo);
         tabelaVisualizacao.setEnabled(false);
         tabelaVisualizacao.setFont(TABLE_CELL_FONT);
         tabelaVisualizacao.setRowHeight(28);
@@ -584,190 +669,336 @@ public class FinanceiroGUI extends JFrame {
                 "Pré-visualização das Transações Importadas", JOptionPane.PLAIN_MESSAGE);
     }
 
-    private int salvarTransacoesImportadas(List<Transacao> transacoes) {
-        int salvas = 0;
-        for (Transacao t : transacoes) {
-            try {
-                transacaoDAO.inserir(t);
-                salvas++;
-            } catch (Exception e) {
-                System.err.println("Erro ao salvar transação importada (ID): " + t.getId() + " - " + e.getMessage());
+    // Tudo ou nada: se a gravação falhar nenhuma transação do arquivo é salva. A gravação
+    // (diário com fsync, ou o snapshot inteiro sem diário) roda fora da EDT.
+    private void salvarTransacoesImportadas(List<Transacao> transacoes) {
+        DialogoProgresso.executar(this, "Salvando transações importadas", new DialogoProgresso.Tarefa<Integer, Void>() {
+            @Override
+            protected boolean isCancelavel() {
+                return false;
             }
-        }
-        return salvas;
+
+            @Override
+            protected Integer doInBackground() throws IOException {
+                informar("Gravando " + transacoes.size() + " transações...", -1);
+                long inicio = System.nanoTime();
+                int salvas = transacaoDAO.inserirEmLote(transacoes);
+                TEMPO_PERSISTENCIA.registrarDesde(inicio);
+                return salvas;
+            }
+
+            @Override
+            protected void concluir() {
+                int salvas;
+                try {
+                    salvas = get();
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(FinanceiroGUI.this,
+                            "Erro ao salvar as transações importadas: " + e.getCause().getMessage() +
+                                    "\nNenhuma transação foi salva.",
+                            "Erro de Importação", JOptionPane.ERROR_MESSAGE);
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                atualizarTabelaComFiltrosAtuais();
+                JOptionPane.showMessageDialog(FinanceiroGUI.this,
+                        salvas + " transações foram importadas com sucesso!",
+                        "Importação Concluída", JOptionPane.INFORMATION_MESSAGE);
+            }
+        });
     }
 
     private void exportarPDF() {
-        List<Transacao> transacoesExibidas = obterTransacoesExibidas();
-
-        if (transacoesExibidas.isEmpty()) {
+        // A tabela já mostra o resultado do filtro; a busca completa fica para o worker
+        if (modeloTabela.getRowCount() == 0) {
             JOptionPane.showMessageDialog(this,
                     "Não há transações para exportar com o filtro atual.",
                     "Exportação Vazia", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
-        JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("Salvar Relatório PDF");
-        fileChooser.setFileFilter(new FileNameExtensionFilter("Arquivos PDF (*.pdf)", "pdf"));
-
-        String nomeSugerido = "relatorio_financeiro";
-        int mesSelecionado = cmbFiltroMes.getSelectedIndex();
-        if (mesSelecionado > 0) {
-            nomeSugerido += "_" + cmbFiltroMes.getSelectedItem().toString().toLowerCase();
-        }
-        String anoSelecionado = (String) cmbFiltroAno.getSelectedItem();
-        if (!"Todos".equals(anoSelecionado)) {
-            nomeSugerido += "_" + anoSelecionado;
+        File arquivo = escolherArquivoExportacao("Salvar Relatório PDF", "Arquivos PDF (*.pdf)", "pdf");
+        if (arquivo == null) {
+            return;
         }
-        fileChooser.setSelectedFile(new File(nomeSugerido + ".pdf"));
 
-        int result = fileChooser.showSaveDialog(this);
+        String caminhoPdf = arquivo.getAbsolutePath();
+        Integer mesFiltro = obterMesFiltro();
+        int anoFiltro = obterAnoFiltro();
+        String busca = txtBusca.getText().trim();
 
-        if (result == JFileChooser.APPROVE_OPTION) {
-            File arquivo = fileChooser.getSelectedFile();
-            String caminho = arquivo.getAbsolutePath();
-            if (!caminho.toLowerCase().endsWith(".pdf")) {
-                caminho += ".pdf";
-                arquivo = new File(caminho);
+        DialogoProgresso.executar(this, "Exportando PDF", new DialogoProgresso.Tarefa<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() {
+                return PDFExporter.exportar(transacaoDAO.buscarColunas(busca, mesFiltro, anoFiltro),
+                        caminhoPdf, this);
             }
 
-            if (arquivo.exists()) {
-                int confirmar = JOptionPane.showConfirmDialog(this,
-                        "O arquivo '" + arquivo.getName() + "' já existe. Deseja sobrescrevê-lo?",
-                        "Confirmar Sobrescrita", JOptionPane.YES_NO_OPTION);
-                if (confirmar != JOptionPane.YES_OPTION) {
+            @Override
+            protected void concluir() {
+                if (isCancelled()) {
                     return;
                 }
+                boolean sucesso;
+                try {
+                    sucesso = get();
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    sucesso = false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                informarResultadoPDF(sucesso, arquivo);
             }
+        });
+    }
 
-            boolean sucesso = PDFExporter.exportar(transacoesExibidas, caminho);
+    private void exportarExcel() {
+        // Mesmo teste do PDF: a busca completa só roda no worker
+        if (modeloTabela.getRowCount() == 0) {
+            JOptionPane.showMessageDialog(this,
+                    "Não há transações para exportar com o filtro atual.",
+                    "Exportação Vazia", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        File arquivo = escolherArquivoExportacao("Salvar Planilha Excel", "Planilhas Excel (*.xlsx)", "xlsx");
+        if (arquivo == null) {
+            return;
+        }
 
-            if (sucesso) {
-                int abrirArquivo = JOptionPane.showConfirmDialog(this,
-                        "PDF gerado com sucesso! Deseja abrir o arquivo agora?",
-                        "PDF Gerado", JOptionPane.YES_NO_OPTION);
+        Integer mesFiltro = obterMesFiltro();
+        int anoFiltro = obterAnoFiltro();
+        String busca = txtBusca.getText().trim();
+
+        DialogoProgresso.executar(this, "Exportando Excel", new DialogoProgresso.Tarefa<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws IOException {
+                return ExcelExporter.exportar(transacaoDAO.buscarSincronizado(busca, mesFiltro, anoFiltro),
+                        arquivo, this);
+            }
+
+            @Override
+            protected void concluir() {
+                if (isCancelled()) {
+                    return;
+                }
+                int exportadas;
+                try {
+                    exportadas = get();
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    JOptionPane.showMessageDialog(FinanceiroGUI.this,
+                            "Ocorreu um erro ao gerar a planilha: " + e.getCause().getMessage(),
+                            "Erro", JOptionPane.ERROR_MESSAGE);
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                int abrirArquivo = JOptionPane.showConfirmDialog(FinanceiroGUI.this,
+                        exportadas + " transações exportadas. Deseja abrir a planilha agora?",
+                        "Planilha Gerada", JOptionPane.YES_NO_OPTION);
                 if (abrirArquivo == JOptionPane.YES_OPTION) {
                     try {
                         Desktop.getDesktop().open(arquivo);
                     } catch (IOException e) {
-                        JOptionPane.showMessageDialog(this,
+                        JOptionPane.showMessageDialog(FinanceiroGUI.this,
                                 "Não foi possível abrir o arquivo: " + e.getMessage(),
                                 "Erro", JOptionPane.ERROR_MESSAGE);
                     }
                 }
-            } else {
-                JOptionPane.showMessageDialog(this,
-                        "Ocorreu um erro ao gerar o PDF. Verifique se o arquivo não está em uso.",
-                        "Erro", JOptionPane.ERROR_MESSAGE);
             }
-        }
+        });
     }
 
-    private List<Transacao> obterTransacoesExibidas() {
-        List<Transacao> transacoes = new ArrayList<>();
-        List<Transacao> todasTransacoes = transacaoDAO.listarTodos();
-
-        Integer mesFiltro = cmbFiltroMes.getSelectedIndex();
-        if (mesFiltro == 0) mesFiltro = null;
+    /**
+     * Pede o arquivo de destino de uma exportação, sugerindo um nome com o filtro atual e
+     * acrescentando a extensão se faltar.
+     *
+     * @return null se o usuário cancelou ou não quis sobrescrever um arquivo existente
+     */
+    private File escolherArquivoExportacao(String titulo, String descricaoFiltro, String extensao) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle(titulo);
+        fileChooser.setFileFilter(new FileNameExtensionFilter(descricaoFiltro, extensao));
 
-        int anoFiltro = "Todos".equals(cmbFiltroAno.getSelectedItem()) ? -1 :
-                Integer.parseInt((String) cmbFiltroAno.getSelectedItem());
+        String nomeSugerido = "relatorio_financeiro";
+        if (cmbFiltroMes.getSelectedIndex() > 0) {
+            nomeSugerido += "_" + cmbFiltroMes.getSelectedItem().toString().toLowerCase();
+        }
+        String anoSelecionado = (String) cmbFiltroAno.getSelectedItem();
+        if (!"Todos".equals(anoSelecionado)) {
+            nomeSugerido += "_" + anoSelecionado;
+        }
+        fileChooser.setSelectedFile(new File(nomeSugerido + "." + extensao));
 
-        for (Transacao t : todasTransacoes) {
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(t.getData());
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
 
-            boolean incluir = true;
+        File arquivo = fileChooser.getSelectedFile();
+        if (!arquivo.getName().toLowerCase().endsWith("." + extensao)) {
+            arquivo = new File(arquivo.getAbsolutePath() + "." + extensao);
+        }
 
-            if (mesFiltro != null && (cal.get(Calendar.MONTH) + 1) != mesFiltro) {
-                incluir = false;
+        if (arquivo.exists()) {
+            int confirmar = JOptionPane.showConfirmDialog(this,
+                    "O arquivo '" + arquivo.getName() + "' já existe. Deseja sobrescrevê-lo?",
+                    "Confirmar Sobrescrita", JOptionPane.YES_NO_OPTION);
+            if (confirmar != JOptionPane.YES_OPTION) {
+                return null;
             }
+        }
+        return arquivo;
+    }
 
-            if (anoFiltro != -1 && cal.get(Calendar.YEAR) != anoFiltro) {
-                incluir = false;
+    private void informarResultadoPDF(boolean sucesso, File arquivo) {
+        if (sucesso) {
+            int abrirArquivo = JOptionPane.showConfirmDialog(this,
+                    "PDF gerado com sucesso! Deseja abrir o arquivo agora?",
+                    "PDF Gerado", JOptionPane.YES_NO_OPTION);
+            if (abrirArquivo == JOptionPane.YES_OPTION) {
+                try {
+                    Desktop.getDesktop().open(arquivo);
+                } catch (IOException e) {
+                    JOptionPane.showMessageDialog(this,
+                            "Não foi possível abrir o arquivo: " + e.getMessage(),
+                            "Erro", JOptionPane.ERROR_MESSAGE);
+                }
             }
+        } else {
+            JOptionPane.showMessageDialog(this,
+                    "Ocorreu um erro ao gerar o PDF. Verifique se o arquivo não está em uso.",
+                    "Erro", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /** Mês selecionado no filtro (1 a 12), ou null para todos. */
+    private Integer obterMesFiltro() {
+        int mesSelecionado = cmbFiltroMes.getSelectedIndex();
+        return mesSelecionado == 0 ? null : mesSelecionado;
+    }
 
-            if (incluir) {
-                transacoes.add(t);
+    /** Ano selecionado no filtro, ou -1 para todos. */
+    private int obterAnoFiltro() {
+        return "Todos".equals(cmbFiltroAno.getSelectedItem()) ? -1 :
+                Integer.parseInt((String) cmbFiltroAno.getSelectedItem());
+    }
+
+    private void aplicarFiltro() {
+        try {
+            int mesSelecionado = cmbFiltroMes.getSelectedIndex();
+            int anoSelecionado = "Todos".equals(cmbFiltroAno.getSelectedItem()) ? -1 :
+                    Integer.parseInt((String) cmbFiltroAno.getSelectedItem());
+            Integer mesFiltro = mesSelecionado == 0 ? null : mesSelecionado;
+            String busca = txtBusca.getText().trim();
+
+            // Voltar ao filtro já exibido (sem alterações nos dados) não precisa recarregar
+            if (Objects.equals(mesFiltro, mesExibido) && anoSelecionado == anoExibido
+                    && busca.equals(buscaExibida) && versaoExibida == transacaoDAO.getVersao()) {
+                if (carregamentoAtual != null) {
+                    carregamentoAtual.cancel(false);
+                }
+                return;
             }
+            carregarTransacoesNaTabela(mesFiltro, anoSelecionado, busca);
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this,
+                    "Erro ao aplicar filtro: " + ex.getMessage(),
+                    "Erro de Filtro", JOptionPane.ERROR_MESSAGE);
         }
-        return transacoes;
     }
 
     private void atualizarTabelaComFiltrosAtuais() {
         int mesSelecionado = cmbFiltroMes.getSelectedIndex();
         int anoSelecionado = "Todos".equals(cmbFiltroAno.getSelectedItem()) ? -1 :
                 Integer.parseInt((String) cmbFiltroAno.getSelectedItem());
-        carregarTransacoesNaTabela(mesSelecionado == 0 ? null : mesSelecionado, anoSelecionado);
+        carregarTransacoesNaTabela(mesSelecionado == 0 ? null : mesSelecionado, anoSelecionado,
+                txtBusca.getText().trim());
     }
 
-    public void carregarTransacoesNaTabela(Integer mesFiltro, int anoFiltro) {
-        modeloTabela.setRowCount(0);
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-
-        try {
-            List<Transacao> transacoes = transacaoDAO.listarTodos();
-
-            int transacoesFiltradasCount = 0;
-            double totalEntrada = 0;
-            double totalSaida = 0;
-
-            for (Transacao t : transacoes) {
-                Calendar cal = Calendar.getInstance();
-                cal.setTime(t.getData());
+    /**
+     * Recarrega a tabela. Os slots do filtro são calculados em segundo plano e entregues ao
+     * modelo de uma vez, com as colunas fixadas (as células só são formatadas quando aparecem
+     * na tela); um novo carregamento cancela o que estiver em andamento, e o resultado de um
+     * carregamento cancelado nunca chega à tela. Não abre diálogo de progresso: a janela
+     * continua respondendo enquanto o filtro é calculado.
+     *
+     * @param busca palavras procuradas na descrição/observação (vazio: sem busca por texto)
+     */
+    public void carregarTransacoesNaTabela(Integer mesFiltro, int anoFiltro, String busca) {
+        if (carregamentoAtual != null) {
+            carregamentoAtual.cancel(false);
+        }
 
-                boolean incluir = true;
+        DialogoProgresso.Tarefa<ArquivoTransacoes.Fonte, Void> tarefa =
+                new DialogoProgresso.Tarefa<ArquivoTransacoes.Fonte, Void>() {
+            private AgregadosTransacoes.Resumo resumo;
+            private long versao;
 
-                if (mesFiltro != null) {
-                    int mesTransacao = cal.get(Calendar.MONTH) + 1;
-                    if (mesTransacao != mesFiltro) {
-                        incluir = false;
-                    }
+            @Override
+            protected ArquivoTransacoes.Fonte doInBackground() {
+                if (!busca.isEmpty()) {
+                    // Sem o monitor: uma edição no EDT não espera o índice terminar
+                    transacaoDAO.montarIndiceTexto();
                 }
-
-                if (anoFiltro != -1) {
-                    int anoTransacao = cal.get(Calendar.YEAR);
-                    if (anoTransacao != anoFiltro) {
-                        incluir = false;
+                synchronized (transacaoDAO) {
+                    // Pode ter sido substituído enquanto esperava o DAO
+                    if (isCancelled()) {
+                        return null;
                     }
-                }
-
-                if (incluir) {
-                    transacoesFiltradasCount++;
-                    if ("ENTRADA".equalsIgnoreCase(t.getTipo())) {
-                        totalEntrada += t.getValor();
+                    versao = transacaoDAO.getVersao();
+                    int[] slots;
+                    if (busca.isEmpty()) {
+                        resumo = transacaoDAO.calcularResumo(mesFiltro, anoFiltro);
+                        slots = transacaoDAO.slotsPorMesEAno(mesFiltro, anoFiltro);
                     } else {
-                        totalSaida += t.getValor();
+                        // O resumo passa a ser o das transações encontradas
+                        slots = transacaoDAO.buscarSlots(busca, mesFiltro, anoFiltro);
+                        resumo = transacaoDAO.calcularResumo(slots);
                     }
-
-                    modeloTabela.addRow(
-                            new Object[] {
-                                    t.getId(),
-                                    t.getTipo(),
-                                    sdf.format(t.getData()),
-                                    t.getDescricao(),
-                                    String.format("R$ %.2f", t.getValor()),
-                                    t.getFormaPagamento()
-                            });
+                    // Fixadas junto com os slots: a tela lê sem travar o DAO até a próxima recarga
+                    return transacaoDAO.fixarColunas(slots);
                 }
             }
 
-            double saldo = totalEntrada - totalSaida;
-            lblSaldo.setText(String.format("R$ %.2f", saldo));
-            lblEntradas.setText(String.format("R$ %.2f", totalEntrada));
-            lblSaidas.setText(String.format("R$ %.2f", totalSaida));
-
-            // Atualizar cores dos valores
-            lblSaldo.setForeground(saldo >= 0 ? SUCCESS_COLOR : DANGER_COLOR);
-            lblEntradas.setForeground(SUCCESS_COLOR);
-            lblSaidas.setForeground(DANGER_COLOR);
-
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this,
-                    "Erro ao carregar transações: " + e.getMessage(),
-                    "Erro de Carregamento", JOptionPane.ERROR_MESSAGE);
-        }
+            @Override
+            protected void concluir() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    modeloTabela.exibir(get());
+                    mesExibido = mesFiltro;
+                    anoExibido = anoFiltro;
+                    buscaExibida = busca;
+                    versaoExibida = versao;
+
+                    long saldo = resumo.getSaldo();
+                    lblSaldo.setText(Moeda.formatar(saldo));
+                    lblEntradas.setText(Moeda.formatar(resumo.getEntradas()));
+                    lblSaidas.setText(Moeda.formatar(resumo.getSaidas()));
+
+                    // Atualizar cores dos valores
+                    lblSaldo.setForeground(saldo >= 0 ? SUCCESS_COLOR : DANGER_COLOR);
+                    lblEntradas.setForeground(SUCCESS_COLOR);
+                    lblSaidas.setForeground(DANGER_COLOR);
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(FinanceiroGUI.this,
+                            "Erro ao carregar transações: " + e.getCause().getMessage(),
+                            "Erro de Carregamento", JOptionPane.ERROR_MESSAGE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        carregamentoAtual = tarefa;
+        tarefa.execute();
     }
 
     public static void main(String[] args) {
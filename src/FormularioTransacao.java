@@ -127,7 +127,7 @@ public class FormularioTransacao extends JDialog {
         }
 
         try {
-            double valor = Double.parseDouble(txtValor.getText().replace(",", "."));
+            long valor = Moeda.converter(txtValor.getText());
             if (valor <= 0) {
                 JOptionPane.showMessageDialog(this, "Valor deve ser maior que zero", "Erro", JOptionPane.ERROR_MESSAGE);
                 return false;
@@ -143,7 +143,7 @@ public class FormularioTransacao extends JDialog {
     private void salvarDados() {
         transacao.setTipo((String) cbTipo.getSelectedItem());
         transacao.setDescricao(txtDescricao.getText().trim());
-        transacao.setValor(Double.parseDouble(txtValor.getText().replace(",", ".")));
+        transacao.setValorCentavos(Moeda.converter(txtValor.getText()));
         transacao.setFormaPagamento((String) cbFormaPagamento.getSelectedItem());
         transacao.setData(new Date()); // Atualiza a data para agora
     }
@@ -5,37 +5,29 @@ import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.data.category.DefaultCategoryDataset;
 
 import javax.swing.*;
-import java.util.*;
+import java.awt.Graphics;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
+/**
+ * Gráfico de entradas x saídas por mês, alimentado pela {@link SerieMensal} que o DAO mantém
+ * em dia: abrir a janela não percorre as transações. Enquanto a janela está aberta, a versão
+ * do DAO é consultada periodicamente e, quando muda, o gráfico é atualizado com a nova série
+ * (só os valores que mudaram; os meses são refeitos apenas se algum mês surgiu ou sumiu).
+ */
 public class GraficoComparativo {
 
-    public static void exibirGrafico(List<Transacao> transacoes) {
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-
-        // Usamos um Map para somar os valores por (tipo, mês/ano)
-        Map<String, Double> entradaPorMesAno = new HashMap<>();
-        Map<String, Double> saidaPorMesAno = new HashMap<>();
-
-        for (Transacao t : transacoes) {
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(t.getData());
-            String chave = cal.get(Calendar.YEAR) + " - " + String.format("%02d", cal.get(Calendar.MONTH) + 1);
-
-            if (t.getTipo().equalsIgnoreCase("Entrada")) {
-                entradaPorMesAno.put(chave, entradaPorMesAno.getOrDefault(chave, 0.0) + t.getValor());
-            } else if (t.getTipo().equalsIgnoreCase("Saída") || t.getTipo().equalsIgnoreCase("Saida")) {
-                saidaPorMesAno.put(chave, saidaPorMesAno.getOrDefault(chave, 0.0) + t.getValor());
-            }
-        }
+    // Intervalo entre as consultas à versão do DAO
+    private static final int INTERVALO_ATUALIZACAO_MS = 500;
 
-        // Adiciona os valores ao dataset
-        for (String chave : entradaPorMesAno.keySet()) {
-            dataset.addValue(entradaPorMesAno.get(chave), "Entrada", chave);
-        }
+    private static final String ENTRADA = "Entrada";
+    private static final String SAIDA = "Saída";
 
-        for (String chave : saidaPorMesAno.keySet()) {
-            dataset.addValue(saidaPorMesAno.get(chave), "Saída", chave);
-        }
+    public static void exibirGrafico(TransacaoDAO transacaoDAO) {
+        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+        long[] versaoExibida = {transacaoDAO.getVersao()};
+        SerieMensal[] serieExibida = {transacaoDAO.calcularSerieMensal()};
+        preencher(dataset, serieExibida[0]);
 
         // Criação do gráfico
         JFreeChart barChart = ChartFactory.createBarChart(
@@ -46,11 +38,108 @@ public class GraficoComparativo {
                 PlotOrientation.VERTICAL,
                 true, true, false);
 
+        Timer atualizacao = new Timer(INTERVALO_ATUALIZACAO_MS, e -> {
+            long versao = transacaoDAO.getVersao();
+            if (versao != versaoExibida[0]) {
+                EventosJfr.AtualizacaoGrafico evento = new EventosJfr.AtualizacaoGrafico();
+                evento.begin();
+                SerieMensal serie = transacaoDAO.calcularSerieMensal();
+                evento.reconstruido = atualizar(dataset, serieExibida[0], serie);
+                serieExibida[0] = serie;
+                versaoExibida[0] = versao;
+                evento.meses = dataset.getColumnCount();
+                evento.commit();
+            }
+        });
+
         JFrame frame = new JFrame("Gráfico Financeiro");
         frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-        frame.add(new ChartPanel(barChart));
+        frame.add(new ChartPanel(barChart) {
+            // Tempo de desenho no EDT, para as gravações do JFR
+            @Override
+            public void paintComponent(Graphics g) {
+                EventosJfr.DesenhoGrafico evento = new EventosJfr.DesenhoGrafico();
+                evento.begin();
+                super.paintComponent(g);
+                evento.meses = dataset.getColumnCount();
+                evento.commit();
+            }
+        });
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                atualizacao.stop();
+            }
+        });
         frame.pack();
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
+        atualizacao.start();
+    }
+
+    // Meses com movimento em ordem cronológica; o eixo segue a ordem de inclusão no dataset
+    private static void preencher(DefaultCategoryDataset dataset, SerieMensal serie) {
+        if (serie.isVazia()) {
+            return;
+        }
+        for (int mes = serie.primeiroMes(); mes <= serie.ultimoMes(); mes++) {
+            if (serie.quantidade(mes) > 0) {
+                String chave = rotulo(mes);
+                dataset.addValue(Moeda.paraDouble(serie.entradas(mes)), ENTRADA, chave);
+                dataset.addValue(Moeda.paraDouble(serie.saidas(mes)), SAIDA, chave);
+            }
+        }
+    }
+
+    // Devolve true se os meses mudaram e o dataset foi refeito
+    private static boolean atualizar(DefaultCategoryDataset dataset, SerieMensal anterior, SerieMensal nova) {
+        // Os eventos de cada setValue são suspensos e o gráfico é redesenhado uma vez só no fim
+        dataset.setNotify(false);
+        try {
+            if (!mesmosMeses(anterior, nova)) {
+                dataset.clear();
+                preencher(dataset, nova);
+                return true;
+            }
+            if (nova.isVazia()) {
+                return false;
+            }
+            for (int mes = nova.primeiroMes(); mes <= nova.ultimoMes(); mes++) {
+                if (nova.quantidade(mes) == 0) {
+                    continue;
+                }
+                if (nova.entradas(mes) != anterior.entradas(mes)) {
+                    dataset.setValue(Moeda.paraDouble(nova.entradas(mes)), ENTRADA, rotulo(mes));
+                }
+                if (nova.saidas(mes) != anterior.saidas(mes)) {
+                    dataset.setValue(Moeda.paraDouble(nova.saidas(mes)), SAIDA, rotulo(mes));
+                }
+            }
+            return false;
+        } finally {
+            dataset.setNotify(true);
+        }
+    }
+
+    // Mesmo conjunto de meses com movimento (e, portanto, as mesmas categorias no eixo)
+    private static boolean mesmosMeses(SerieMensal a, SerieMensal b) {
+        if (a.isVazia() || b.isVazia()) {
+            return a.isVazia() == b.isVazia();
+        }
+        if (a.primeiroMes() != b.primeiroMes() || a.ultimoMes() != b.ultimoMes()) {
+            return false;
+        }
+        for (int mes = a.primeiroMes(); mes <= a.ultimoMes(); mes++) {
+            if ((a.quantidade(mes) > 0) != (b.quantidade(mes) > 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // "2024 - 03"
+    private static String rotulo(int epochMes) {
+        int mes = Datas.mes(epochMes);
+        return Datas.ano(epochMes) + (mes < 10 ? " - 0" : " - ") + mes;
     }
 }
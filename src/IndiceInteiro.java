@@ -0,0 +1,136 @@
+import java.util.Arrays;
+
+/**
+ * Mapa int -> int com endereçamento aberto (sondagem linear), sem boxing.
+ * Usado pelo DAO para localizar o slot de uma transação pelo id em O(1).
+ * Os valores guardados precisam ser &gt;= 0; {@link #AUSENTE} indica chave inexistente.
+ */
+public class IndiceInteiro {
+
+    public static final int AUSENTE = -1;
+
+    private static final float FATOR_CARGA = 0.6f;
+
+    private int[] chaves;
+    private int[] valores;
+    private int mascara;
+    private int tamanho;
+    private int limite;
+
+    public IndiceInteiro() {
+        this(16);
+    }
+
+    public IndiceInteiro(int capacidadeEsperada) {
+        alocar(capacidadeParaTamanho(capacidadeEsperada));
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    public int obter(int chave) {
+        int i = posicaoInicial(chave);
+        while (valores[i] != AUSENTE) {
+            if (chaves[i] == chave) {
+                return valores[i];
+            }
+            i = (i + 1) & mascara;
+        }
+        return AUSENTE;
+    }
+
+    public void colocar(int chave, int valor) {
+        if (valor < 0) {
+            throw new IllegalArgumentException("Valor negativo não suportado: " + valor);
+        }
+        int i = posicaoInicial(chave);
+        while (valores[i] != AUSENTE) {
+            if (chaves[i] == chave) {
+                valores[i] = valor;
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+        chaves[i] = chave;
+        valores[i] = valor;
+        if (++tamanho > limite) {
+            redimensionar(valores.length * 2);
+        }
+    }
+
+    /** Redimensiona uma única vez para comportar {@code tamanhoEsperado} chaves. */
+    public void reservar(int tamanhoEsperado) {
+        int capacidade = capacidadeParaTamanho(tamanhoEsperado);
+        if (capacidade > valores.length) {
+            redimensionar(capacidade);
+        }
+    }
+
+    /** Remove a chave e devolve o valor que estava associado, ou {@link #AUSENTE}. */
+    public int remover(int chave) {
+        int i = posicaoInicial(chave);
+        while (valores[i] != AUSENTE) {
+            if (chaves[i] == chave) {
+                int anterior = valores[i];
+                deslocarParaTras(i);
+                tamanho--;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        return AUSENTE;
+    }
+
+    // Remoção sem lápide: puxa para trás as entradas seguintes que dependiam da posição liberada
+    private void deslocarParaTras(int livre) {
+        int i = livre;
+        while (true) {
+            i = (i + 1) & mascara;
+            if (valores[i] == AUSENTE) {
+                break;
+            }
+            int ideal = posicaoInicial(chaves[i]);
+            boolean podeMover = livre <= i ? (ideal <= livre || ideal > i) : (ideal <= livre && ideal > i);
+            if (podeMover) {
+                chaves[livre] = chaves[i];
+                valores[livre] = valores[i];
+                livre = i;
+            }
+        }
+        valores[livre] = AUSENTE;
+    }
+
+    private int posicaoInicial(int chave) {
+        int h = chave * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    private void redimensionar(int novaCapacidade) {
+        int[] chavesAntigas = chaves;
+        int[] valoresAntigos = valores;
+        alocar(novaCapacidade);
+        tamanho = 0;
+        for (int i = 0; i < valoresAntigos.length; i++) {
+            if (valoresAntigos[i] != AUSENTE) {
+                colocar(chavesAntigas[i], valoresAntigos[i]);
+            }
+        }
+    }
+
+    private void alocar(int capacidade) {
+        chaves = new int[capacidade];
+        valores = new int[capacidade];
+        Arrays.fill(valores, AUSENTE);
+        mascara = capacidade - 1;
+        limite = (int) (capacidade * FATOR_CARGA);
+    }
+
+    private static int capacidadeParaTamanho(int tamanhoEsperado) {
+        int capacidade = 16;
+        while (capacidade * FATOR_CARGA < tamanhoEsperado) {
+            capacidade <<= 1;
+        }
+        return capacidade;
+    }
+}
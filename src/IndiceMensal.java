@@ -0,0 +1,55 @@
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Índice secundário por data: um balde de slots para cada mês (chave = {@link Datas#epochMes}).
+ * Um filtro de mês/ano só visita os baldes que interessam, sem percorrer a base inteira.
+ * Dentro de cada balde os slots ficam em ordem crescente (ordem de inclusão).
+ */
+public class IndiceMensal {
+
+    // Linhas sem data ficam fora dos baldes de mês
+    private static final int SEM_MES = Integer.MIN_VALUE;
+
+    private final TreeMap<Integer, ListaInt> baldes = new TreeMap<>();
+
+    public static int chave(int epochDay) {
+        return epochDay == Datas.SEM_DATA ? SEM_MES : Datas.epochMes(epochDay);
+    }
+
+    public void adicionar(int slot, int epochDay) {
+        baldes.computeIfAbsent(chave(epochDay), k -> new ListaInt()).inserirOrdenado(slot);
+    }
+
+    public void remover(int slot, int epochDay) {
+        int chave = chave(epochDay);
+        ListaInt balde = baldes.get(chave);
+        if (balde != null && balde.removerOrdenado(slot) && balde.tamanho() == 0) {
+            baldes.remove(chave);
+        }
+    }
+
+    public void mover(int slot, int epochDayAnterior, int epochDayNovo) {
+        if (chave(epochDayAnterior) != chave(epochDayNovo)) {
+            remover(slot, epochDayAnterior);
+            adicionar(slot, epochDayNovo);
+        }
+    }
+
+    /** Baldes de meses entre {@code epochMesInicio} e {@code epochMesFim}, inclusive, em ordem cronológica. */
+    public Map<Integer, ListaInt> intervalo(int epochMesInicio, int epochMesFim) {
+        if (epochMesInicio > epochMesFim) {
+            return new TreeMap<>();
+        }
+        return baldes.subMap(epochMesInicio, true, epochMesFim, true);
+    }
+
+    public ListaInt balde(int epochMes) {
+        return baldes.get(epochMes);
+    }
+
+    /** Todos os baldes com mês definido, em ordem cronológica. */
+    public Map<Integer, ListaInt> baldes() {
+        return baldes.tailMap(SEM_MES, false);
+    }
+}
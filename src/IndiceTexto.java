@@ -0,0 +1,139 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Índice invertido das palavras de descrição e observação: para cada termo, os slots das
+ * transações que o contêm, em ordem crescente. Os termos são guardados em minúsculas e sem
+ * acento ("Crédito" e "CREDITO" viram "credito"); letras e dígitos formam as palavras e
+ * qualquer outro caractere separa.
+ *
+ * Na busca cada palavra da consulta é um prefixo ("cred" encontra "crédito" e
+ * "credenciado") e o resultado tem as transações que contêm todas as palavras.
+ */
+public class IndiceTexto {
+
+    // Forma dobrada dos caracteres até o fim do Latin Extended-B (0 = separador)
+    private static final char[] DOBRADOS = new char[0x250];
+
+    static {
+        for (char c = 0; c < DOBRADOS.length; c++) {
+            DOBRADOS[c] = dobrarSemTabela(c);
+        }
+    }
+
+    private final TreeMap<String, ListaInt> termos = new TreeMap<>();
+
+    public void adicionar(int slot, String descricao, String obs) {
+        for (String termo : termos(descricao)) {
+            termos.computeIfAbsent(termo, k -> new ListaInt(2)).inserirOrdenado(slot);
+        }
+        for (String termo : termos(obs)) {
+            termos.computeIfAbsent(termo, k -> new ListaInt(2)).inserirOrdenado(slot);
+        }
+    }
+
+    public void remover(int slot, String descricao, String obs) {
+        for (String termo : termos(descricao)) {
+            removerDoTermo(termo, slot);
+        }
+        for (String termo : termos(obs)) {
+            removerDoTermo(termo, slot);
+        }
+    }
+
+    private void removerDoTermo(String termo, int slot) {
+        ListaInt slots = termos.get(termo);
+        if (slots != null && slots.removerOrdenado(slot) && slots.tamanho() == 0) {
+            termos.remove(termo);
+        }
+    }
+
+    /** Traduz os slots de todos os termos (slot antigo → {@code novos[slot]}, em ordem crescente). */
+    public void renumerar(int[] novos) {
+        for (ListaInt slots : termos.values()) {
+            slots.renumerar(novos);
+        }
+    }
+
+    public int quantidadeTermos() {
+        return termos.size();
+    }
+
+    /**
+     * Slots que contêm, para cada palavra da consulta, algum termo começado por ela.
+     *
+     * @return null se a consulta não tem nenhuma palavra (não restringe nada)
+     */
+    public BitSet buscar(String consulta) {
+        List<String> palavras = termos(consulta);
+        if (palavras.isEmpty()) {
+            return null;
+        }
+
+        BitSet resultado = null;
+        for (String palavra : palavras) {
+            BitSet encontrados = new BitSet();
+            for (ListaInt slots : comPrefixo(palavra).values()) {
+                for (int i = 0; i < slots.tamanho(); i++) {
+                    encontrados.set(slots.get(i));
+                }
+            }
+            if (resultado == null) {
+                resultado = encontrados;
+            } else {
+                resultado.and(encontrados);
+            }
+            if (resultado.isEmpty()) {
+                break;
+            }
+        }
+        return resultado;
+    }
+
+    private Map<String, ListaInt> comPrefixo(String prefixo) {
+        return termos.subMap(prefixo, true, prefixo + Character.MAX_VALUE, false);
+    }
+
+    /** Palavras do texto já dobradas (minúsculas, sem acento), na ordem em que aparecem. */
+    public static List<String> termos(String texto) {
+        List<String> termos = new ArrayList<>();
+        if (texto == null) {
+            return termos;
+        }
+
+        char[] termo = new char[texto.length()];
+        int tamanho = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = dobrar(texto.charAt(i));
+            if (c != 0) {
+                termo[tamanho++] = c;
+            } else if (tamanho > 0) {
+                termos.add(new String(termo, 0, tamanho));
+                tamanho = 0;
+            }
+        }
+        if (tamanho > 0) {
+            termos.add(new String(termo, 0, tamanho));
+        }
+        return termos;
+    }
+
+    private static char dobrar(char c) {
+        return c < DOBRADOS.length ? DOBRADOS[c] : dobrarSemTabela(c);
+    }
+
+    // Letra ou dígito em minúsculas e sem o acento (primeiro caractere da forma decomposta)
+    private static char dobrarSemTabela(char c) {
+        if (!Character.isLetterOrDigit(c)) {
+            return 0;
+        }
+        if (c >= 0x80) {
+            c = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+        }
+        return Character.toLowerCase(c);
+    }
+}
@@ -0,0 +1,382 @@
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Lê a primeira aba de uma planilha (.xlsx ou .xls) linha a linha, sem montar o Workbook
+ * em memória: o .xlsx é percorrido com SAX sobre o XML da aba e o .xls com a API de
+ * eventos do HSSF. Cada linha é entregue ao destino assim que termina de ser lida, então
+ * o consumo de memória não depende do tamanho do arquivo (fora a tabela de textos
+ * compartilhados do próprio arquivo).
+ *
+ * Assim como no modelo DOM, linhas que não existem no arquivo não são entregues e
+ * células de fórmula trazem o último valor calculado salvo pelo Excel.
+ */
+public final class LeitorPlanilha {
+
+    private LeitorPlanilha() {
+    }
+
+    public static void ler(File arquivo, Consumer<LinhaPlanilha> destino) throws IOException {
+        FileMagic formato = FileMagic.valueOf(arquivo);
+        if (formato == FileMagic.OOXML) {
+            lerXlsx(arquivo, destino);
+        } else if (formato == FileMagic.OLE2) {
+            lerXls(arquivo, destino);
+        } else {
+            throw new IOException("Formato de planilha não suportado: " + arquivo.getName());
+        }
+    }
+
+    // .xlsx
+
+    private static void lerXlsx(File arquivo, Consumer<LinhaPlanilha> destino) throws IOException {
+        OPCPackage pacote;
+        try {
+            pacote = OPCPackage.open(arquivo, PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("Não foi possível abrir a planilha: " + e.getMessage(), e);
+        }
+        try {
+            XSSFReader leitor = new XSSFReader(pacote);
+            boolean data1904 = isData1904(leitor);
+            ReadOnlySharedStringsTable textos = new ReadOnlySharedStringsTable(pacote);
+            StylesTable estilos = leitor.getStylesTable();
+
+            Iterator<InputStream> abas = leitor.getSheetsData();
+            if (!abas.hasNext()) {
+                return;
+            }
+            try (InputStream aba = abas.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new ManipuladorAba(textos, estilos, data1904, destino));
+                parser.parse(new InputSource(aba));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Erro ao ler a planilha: " + e.getMessage(), e);
+        } finally {
+            // Pacote aberto só para leitura: revert() fecha sem tentar gravar
+            pacote.revert();
+        }
+    }
+
+    private static boolean isData1904(XSSFReader leitor)
+            throws IOException, OpenXML4JException, SAXException, ParserConfigurationException {
+        boolean[] data1904 = new boolean[1];
+        try (InputStream workbook = leitor.getWorkbookData()) {
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes atributos) {
+                    if ("workbookPr".equals(localName)) {
+                        String valor = atributos.getValue("date1904");
+                        data1904[0] = "1".equals(valor) || "true".equalsIgnoreCase(valor);
+                    }
+                }
+            });
+            parser.parse(new InputSource(workbook));
+        }
+        return data1904[0];
+    }
+
+    /** Índice (0, 1, ...) da coluna a partir da referência da célula ("C12" -> 2). */
+    private static int coluna(String referencia) {
+        int coluna = 0;
+        for (int i = 0; i < referencia.length(); i++) {
+            char c = referencia.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            coluna = coluna * 26 + (c - 'A' + 1);
+        }
+        return coluna - 1;
+    }
+
+    private static final class ManipuladorAba extends DefaultHandler {
+        private final ReadOnlySharedStringsTable textos;
+        private final StylesTable estilos;
+        private final boolean data1904;
+        private final Consumer<LinhaPlanilha> destino;
+        // índice do estilo -> se o formato numérico é de data
+        private final Map<Integer, Boolean> estilosData = new HashMap<>();
+
+        private final StringBuilder valor = new StringBuilder();
+        private LinhaPlanilha linha;
+        private int numeroLinha = -1;
+        private int colunaCelula;
+        private String tipoCelula;
+        private int estiloCelula;
+        private boolean lendoValor;
+        private boolean dentroFonetica;
+
+        ManipuladorAba(ReadOnlySharedStringsTable textos, StylesTable estilos, boolean data1904,
+                       Consumer<LinhaPlanilha> destino) {
+            this.textos = textos;
+            this.estilos = estilos;
+            this.data1904 = data1904;
+            this.destino = destino;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atributos) {
+            switch (localName) {
+                case "row": {
+                    String r = atributos.getValue("r");
+                    numeroLinha = r != null ? Integer.parseInt(r) - 1 : numeroLinha + 1;
+                    linha = new LinhaPlanilha(numeroLinha, data1904);
+                    colunaCelula = -1;
+                    break;
+                }
+                case "c": {
+                    String r = atributos.getValue("r");
+                    colunaCelula = r != null ? coluna(r) : colunaCelula + 1;
+                    tipoCelula = atributos.getValue("t");
+                    String s = atributos.getValue("s");
+                    estiloCelula = s != null ? Integer.parseInt(s) : 0;
+                    valor.setLength(0);
+                    break;
+                }
+                case "v":
+                    lendoValor = true;
+                    break;
+                case "t":
+                    // Texto "inline"; as anotações fonéticas (rPh) também usam <t> e ficam de fora
+                    lendoValor = "inlineStr".equals(tipoCelula) && !dentroFonetica;
+                    break;
+                case "rPh":
+                    dentroFonetica = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (lendoValor) {
+                valor.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    lendoValor = false;
+                    break;
+                case "rPh":
+                    dentroFonetica = false;
+                    break;
+                case "c":
+                    if (linha != null) {
+                        definirCelula();
+                    }
+                    break;
+                case "row":
+                    destino.accept(linha);
+                    linha = null;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void definirCelula() {
+            String texto = valor.toString();
+            if (tipoCelula == null || "n".equals(tipoCelula)) {
+                if (texto.isEmpty()) {
+                    linha.definirTexto(colunaCelula, "");
+                } else {
+                    linha.definirNumero(colunaCelula, Double.parseDouble(texto), isEstiloData(estiloCelula));
+                }
+                return;
+            }
+            switch (tipoCelula) {
+                case "s":
+                    linha.definirTexto(colunaCelula, texto.isEmpty() ? ""
+                            : textos.getItemAt(Integer.parseInt(texto)).getString());
+                    break;
+                case "b":
+                    linha.definirTexto(colunaCelula, "1".equals(texto) ? "TRUE" : "FALSE");
+                    break;
+                default: // "str" (fórmula de texto), "inlineStr" e "e" (erro, ex.: #DIV/0!)
+                    linha.definirTexto(colunaCelula, texto);
+                    break;
+            }
+        }
+
+        private boolean isEstiloData(int indice) {
+            Boolean data = estilosData.get(indice);
+            if (data == null) {
+                XSSFCellStyle estilo = estilos != null && indice < estilos.getNumCellStyles()
+                        ? estilos.getStyleAt(indice) : null;
+                data = estilo != null
+                        && DateUtil.isADateFormat(estilo.getDataFormat(), estilo.getDataFormatString());
+                estilosData.put(indice, data);
+            }
+            return data;
+        }
+    }
+
+    // .xls
+
+    private static void lerXls(File arquivo, Consumer<LinhaPlanilha> destino) throws IOException {
+        try (POIFSFileSystem sistema = new POIFSFileSystem(arquivo, true)) {
+            HSSFRequest requisicao = new HSSFRequest();
+            requisicao.addListenerForAllRecords(new OuvinteXls(destino));
+            new HSSFEventFactory().abortableProcessWorkbookEvents(requisicao, sistema);
+        } catch (HSSFUserException e) {
+            throw new IOException("Erro ao ler a planilha: " + e.getMessage(), e);
+        }
+    }
+
+    private static final class OuvinteXls extends AbortableHSSFListener {
+        private final Consumer<LinhaPlanilha> destino;
+        private final FormatTrackingHSSFListener formatos = new FormatTrackingHSSFListener(null);
+
+        private SSTRecord textos;
+        private boolean data1904;
+        private int aba = -1;
+        private LinhaPlanilha linha;
+        // Fórmula de texto: o valor vem no StringRecord seguinte
+        private FormulaRecord formulaPendente;
+
+        OuvinteXls(Consumer<LinhaPlanilha> destino) {
+            this.destino = destino;
+        }
+
+        @Override
+        public short abortableProcessRecord(Record registro) {
+            formatos.processRecordInternally(registro);
+
+            if (registro instanceof BOFRecord) {
+                if (((BOFRecord) registro).getType() == BOFRecord.TYPE_WORKSHEET) {
+                    aba++;
+                }
+                return 0;
+            }
+            if (registro instanceof SSTRecord) {
+                textos = (SSTRecord) registro;
+                return 0;
+            }
+            if (registro instanceof DateWindow1904Record) {
+                data1904 = ((DateWindow1904Record) registro).getWindowing() == 1;
+                return 0;
+            }
+            if (aba != 0) {
+                return 0;
+            }
+            if (registro instanceof EOFRecord) {
+                // Fim da primeira aba: as demais não interessam
+                entregarLinha();
+                return 1;
+            }
+
+            if (registro instanceof StringRecord) {
+                if (formulaPendente != null) {
+                    linhaDe(formulaPendente).definirTexto(formulaPendente.getColumn(),
+                            ((StringRecord) registro).getString());
+                    formulaPendente = null;
+                }
+            } else if (registro instanceof LabelSSTRecord) {
+                LabelSSTRecord celula = (LabelSSTRecord) registro;
+                linhaDe(celula).definirTexto(celula.getColumn(), textos.getString(celula.getSSTIndex()).getString());
+            } else if (registro instanceof LabelRecord) {
+                LabelRecord celula = (LabelRecord) registro;
+                linhaDe(celula).definirTexto(celula.getColumn(), celula.getValue());
+            } else if (registro instanceof NumberRecord) {
+                NumberRecord celula = (NumberRecord) registro;
+                linhaDe(celula).definirNumero(celula.getColumn(), celula.getValue(), isData(celula));
+            } else if (registro instanceof FormulaRecord) {
+                definirFormula((FormulaRecord) registro);
+            } else if (registro instanceof BoolErrRecord) {
+                BoolErrRecord celula = (BoolErrRecord) registro;
+                linhaDe(celula).definirTexto(celula.getColumn(), celula.isBoolean()
+                        ? (celula.getBooleanValue() ? "TRUE" : "FALSE")
+                        : FormulaError.forInt(celula.getErrorValue()).getString());
+            } else if (registro instanceof BlankRecord) {
+                BlankRecord celula = (BlankRecord) registro;
+                linhaDe(celula).definirTexto(celula.getColumn(), "");
+            }
+            return 0;
+        }
+
+        private void definirFormula(FormulaRecord celula) {
+            CellType tipo = celula.getCachedResultTypeEnum();
+            LinhaPlanilha destinoCelula = linhaDe(celula);
+            if (tipo == CellType.STRING) {
+                formulaPendente = celula;
+            } else if (tipo == CellType.BOOLEAN) {
+                destinoCelula.definirTexto(celula.getColumn(), celula.getCachedBooleanValue() ? "TRUE" : "FALSE");
+            } else if (tipo == CellType.ERROR) {
+                destinoCelula.definirTexto(celula.getColumn(),
+                        FormulaError.forInt(celula.getCachedErrorValue()).getString());
+            } else {
+                destinoCelula.definirNumero(celula.getColumn(), celula.getValue(), isData(celula));
+            }
+        }
+
+        private boolean isData(CellValueRecordInterface celula) {
+            return DateUtil.isADateFormat(formatos.getFormatIndex(celula), formatos.getFormatString(celula));
+        }
+
+        // As células do .xls vêm agrupadas por linha, em ordem; quando a linha muda a anterior está completa
+        private LinhaPlanilha linhaDe(CellValueRecordInterface celula) {
+            if (linha == null || linha.getNumero() != celula.getRow()) {
+                entregarLinha();
+                linha = new LinhaPlanilha(celula.getRow(), data1904);
+            }
+            return linha;
+        }
+
+        private void entregarLinha() {
+            if (linha != null) {
+                destino.accept(linha);
+                linha = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.LocaleUtil;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Uma linha da planilha de importação, independente de como foi lida (DOM do POI,
+ * SAX do .xlsx ou eventos do .xls). Guarda só as colunas que o ExcelImporter usa.
+ */
+public class LinhaPlanilha {
+
+    public static final int COLUNAS = 7; // da coluna de data (0) até a de observação (6)
+
+    private static final byte VAZIA = 0;
+    private static final byte TEXTO = 1;
+    private static final byte NUMERO = 2;
+    private static final byte DATA = 3;
+
+    private final int numero;
+    private final boolean data1904;
+    private final byte[] tipos = new byte[COLUNAS];
+    private final String[] textos = new String[COLUNAS];
+    private final double[] numeros = new double[COLUNAS];
+    private int celulasFisicas;
+
+    /** @param numero índice da linha na planilha (começando em 0) */
+    public LinhaPlanilha(int numero, boolean data1904) {
+        this.numero = numero;
+        this.data1904 = data1904;
+    }
+
+    public int getNumero() {
+        return numero;
+    }
+
+    public int getCelulasFisicas() {
+        return celulasFisicas;
+    }
+
+    public void definirTexto(int coluna, String texto) {
+        celulasFisicas++;
+        if (coluna < COLUNAS) {
+            tipos[coluna] = TEXTO;
+            textos[coluna] = texto;
+        }
+    }
+
+    public void definirNumero(int coluna, double valor, boolean formatoData) {
+        celulasFisicas++;
+        if (coluna < COLUNAS) {
+            tipos[coluna] = formatoData ? DATA : NUMERO;
+            numeros[coluna] = valor;
+        }
+    }
+
+    /** Célula ausente ou em branco (equivale a RETURN_BLANK_AS_NULL do POI). */
+    public boolean isVazia(int coluna) {
+        return tipos[coluna] == VAZIA || (tipos[coluna] == TEXTO && textos[coluna].isEmpty());
+    }
+
+    public boolean isNumero(int coluna) {
+        return tipos[coluna] == NUMERO || tipos[coluna] == DATA;
+    }
+
+    public boolean isData(int coluna) {
+        return tipos[coluna] == DATA;
+    }
+
+    public double getNumero(int coluna) {
+        return numeros[coluna];
+    }
+
+    public Date getData(int coluna) {
+        return DateUtil.getJavaDate(numeros[coluna], data1904);
+    }
+
+    /** Mesmo texto que Cell.toString() do POI produziria para a célula. */
+    public String getTexto(int coluna) {
+        switch (tipos[coluna]) {
+            case TEXTO:
+                return textos[coluna];
+            case NUMERO:
+                return Double.toString(numeros[coluna]);
+            case DATA:
+                SimpleDateFormat sdf = new SimpleDateFormat("dd-MMM-yyyy", LocaleUtil.getUserLocale());
+                sdf.setTimeZone(LocaleUtil.getUserTimeZone());
+                return sdf.format(getData(coluna));
+            default:
+                return "";
+        }
+    }
+}
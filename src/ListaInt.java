@@ -0,0 +1,81 @@
+import java.util.Arrays;
+
+/**
+ * Lista crescente de ints sem boxing. Os índices do DAO guardam slots em ordem crescente,
+ * então inserção e remoção usam busca binária.
+ */
+public class ListaInt {
+
+    private int[] valores;
+    private int tamanho;
+
+    public ListaInt() {
+        this(8);
+    }
+
+    public ListaInt(int capacidade) {
+        valores = new int[Math.max(capacidade, 1)];
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    public int get(int indice) {
+        return valores[indice];
+    }
+
+    /** Acrescenta no fim; quem chama garante que o valor não quebra a ordem. */
+    public void adicionar(int valor) {
+        if (tamanho == valores.length) {
+            valores = Arrays.copyOf(valores, tamanho * 2);
+        }
+        valores[tamanho++] = valor;
+    }
+
+    /** Insere mantendo a ordem crescente (valores repetidos são ignorados). */
+    public void inserirOrdenado(int valor) {
+        if (tamanho == 0 || valores[tamanho - 1] < valor) {
+            adicionar(valor);
+            return;
+        }
+        int posicao = Arrays.binarySearch(valores, 0, tamanho, valor);
+        if (posicao >= 0) {
+            return;
+        }
+        posicao = -posicao - 1;
+        if (tamanho == valores.length) {
+            valores = Arrays.copyOf(valores, tamanho * 2);
+        }
+        System.arraycopy(valores, posicao, valores, posicao + 1, tamanho - posicao);
+        valores[posicao] = valor;
+        tamanho++;
+    }
+
+    public boolean removerOrdenado(int valor) {
+        int posicao = Arrays.binarySearch(valores, 0, tamanho, valor);
+        if (posicao < 0) {
+            return false;
+        }
+        System.arraycopy(valores, posicao + 1, valores, posicao, tamanho - posicao - 1);
+        tamanho--;
+        return true;
+    }
+
+    /** Copia os valores para {@code destino} a partir de {@code inicio}; devolve a próxima posição livre. */
+    public int copiarPara(int[] destino, int inicio) {
+        System.arraycopy(valores, 0, destino, inicio, tamanho);
+        return inicio + tamanho;
+    }
+
+    /** Troca cada valor por {@code novos[valor]}; a tradução precisa preservar a ordem. */
+    public void renumerar(int[] novos) {
+        for (int i = 0; i < tamanho; i++) {
+            valores[i] = novos[valores[i]];
+        }
+    }
+
+    public int[] paraArray() {
+        return Arrays.copyOf(valores, tamanho);
+    }
+}
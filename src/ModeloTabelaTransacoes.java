@@ -0,0 +1,57 @@
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Modelo da tabela principal. Guarda as colunas das transações exibidas fixadas numa versão do
+ * DAO ({@link TransacaoDAO#fixarColunas}) e formata cada célula quando o JTable pede (só as
+ * linhas visíveis são formatadas); pintar a tabela nunca espera pelo DAO. Trocar o conteúdo
+ * dispara um único fireTableDataChanged, qualquer que seja o número de linhas.
+ */
+public class ModeloTabelaTransacoes extends AbstractTableModel {
+
+    private static final String[] COLUNAS = {"ID", "Tipo", "Data", "Descrição", "Valor", "Forma Pagamento"};
+
+    private ArquivoTransacoes.Fonte linhas;
+
+    /** @param linhas uma linha da tabela por linha da fonte ({@link TransacaoDAO#fixarColunas}) */
+    public void exibir(ArquivoTransacoes.Fonte linhas) {
+        this.linhas = linhas;
+        fireTableDataChanged();
+    }
+
+    public int getId(int linha) {
+        return linhas.id(linha);
+    }
+
+    @Override
+    public int getRowCount() {
+        return linhas != null ? linhas.tamanho() : 0;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUNAS.length;
+    }
+
+    @Override
+    public String getColumnName(int coluna) {
+        return COLUNAS[coluna];
+    }
+
+    @Override
+    public Object getValueAt(int linha, int coluna) {
+        switch (coluna) {
+            case 0:
+                return linhas.id(linha);
+            case 1:
+                return linhas.tipo(linha);
+            case 2:
+                return Datas.formatar(linhas.epochDay(linha));
+            case 3:
+                return linhas.descricao(linha);
+            case 4:
+                return Moeda.formatar(linhas.centavos(linha));
+            default:
+                return linhas.formaPagamento(linha);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Valores monetários em centavos (long). Somas são feitas em aritmética inteira, sem o
+ * acúmulo de erro do double; a conversão para texto só acontece na hora de exibir.
+ */
+public final class Moeda {
+
+    private Moeda() {
+    }
+
+    /** Arredonda um valor em reais para centavos (meio para cima). */
+    public static long deDouble(double valor) {
+        return Math.round(valor * 100);
+    }
+
+    public static double paraDouble(long centavos) {
+        return centavos / 100.0;
+    }
+
+    /**
+     * Converte o texto digitado pelo usuário ("12,50", "12.50", "1.234,56", "R$ 10") em centavos.
+     * Se houver vírgula ela é o separador decimal e os pontos são de milhar; sem vírgula,
+     * o ponto é decimal.
+     *
+     * @throws NumberFormatException se o texto não for um valor válido
+     */
+    public static long converter(String texto) {
+        if (texto == null) {
+            throw new NumberFormatException("Valor vazio");
+        }
+        String limpo = texto.replace("R$", "").trim();
+        if (limpo.indexOf(',') >= 0) {
+            limpo = limpo.replace(".", "").replace(',', '.');
+        }
+        if (limpo.isEmpty()) {
+            throw new NumberFormatException("Valor vazio");
+        }
+        try {
+            return new BigDecimal(limpo).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Valor fora do limite: " + texto);
+        }
+    }
+
+    /**
+     * Lê um valor no formato brasileiro vindo de planilha ("R$ 1.234,56", "-10,5", "1234"):
+     * a vírgula é sempre o separador decimal e os pontos são de milhar. "R", "$" e espaços
+     * são ignorados; casas além da segunda são arredondadas (meio para cima). Percorre o
+     * texto uma única vez, sem criar objetos, e pode ser chamado de vários threads.
+     *
+     * @return o valor em centavos (0 se não houver dígitos)
+     * @throws NumberFormatException se houver outros caracteres ou o valor não couber em um long
+     */
+    public static long converterPtBr(CharSequence texto) {
+        long centavos = 0;
+        boolean negativo = false;
+        boolean temSinal = false;
+        boolean temDigito = false;
+        int casasDecimais = -1; // -1 enquanto não aparecer a vírgula
+        boolean arredondarParaCima = false;
+        boolean fimDoNumero = false; // espaço depois dos dígitos: só podem vir espaços/símbolos
+
+        for (int i = 0, n = texto.length(); i < n; i++) {
+            char c = texto.charAt(i);
+            boolean espaco = Character.isWhitespace(c) || Character.isSpaceChar(c);
+            if (fimDoNumero && ((c >= '0' && c <= '9') || c == ',')) {
+                throw new NumberFormatException("Valor inválido: " + texto);
+            }
+            if (c >= '0' && c <= '9') {
+                temDigito = true;
+                if (casasDecimais < 0) {
+                    if (centavos > (Long.MAX_VALUE - 9) / 10) {
+                        throw new NumberFormatException("Valor fora do limite: " + texto);
+                    }
+                    centavos = centavos * 10 + (c - '0');
+                } else if (casasDecimais < 2) {
+                    centavos = centavos * 10 + (c - '0');
+                    casasDecimais++;
+                } else if (casasDecimais == 2) {
+                    arredondarParaCima = c >= '5';
+                    casasDecimais++;
+                }
+            } else if (c == ',' && casasDecimais < 0) {
+                if (centavos > (Long.MAX_VALUE - 100) / 100) {
+                    throw new NumberFormatException("Valor fora do limite: " + texto);
+                }
+                casasDecimais = 0;
+            } else if ((c == '-' || c == '+') && !temSinal && !temDigito && casasDecimais < 0) {
+                temSinal = true;
+                negativo = c == '-';
+            } else if (espaco) {
+                fimDoNumero = temDigito;
+            } else if (c != '.' && c != 'R' && c != '$') {
+                throw new NumberFormatException("Valor inválido: " + texto);
+            }
+        }
+
+        if (!temDigito && (temSinal || casasDecimais >= 0)) {
+            throw new NumberFormatException("Valor inválido: " + texto);
+        }
+
+        if (casasDecimais < 0) {
+            if (centavos > (Long.MAX_VALUE - 100) / 100) {
+                throw new NumberFormatException("Valor fora do limite: " + texto);
+            }
+            centavos *= 100;
+        } else {
+            for (int casa = Math.min(casasDecimais, 2); casa < 2; casa++) {
+                centavos *= 10;
+            }
+            if (arredondarParaCima) {
+                centavos++;
+            }
+        }
+        return negativo ? -centavos : centavos;
+    }
+
+    /** "R$ 1.234,56" */
+    public static String formatar(long centavos) {
+        return "R$ " + formatarNumero(centavos, true);
+    }
+
+    /** "1234,56" (sem símbolo e sem separador de milhar, para campos de edição). */
+    public static String formatarParaEdicao(long centavos) {
+        return formatarNumero(centavos, false);
+    }
+
+    private static String formatarNumero(long centavos, boolean separarMilhar) {
+        StringBuilder sb = new StringBuilder(24);
+        anexar(sb, centavos, separarMilhar);
+        return sb.toString();
+    }
+
+    /** Escreve o valor ("1.234,56") em {@code destino} sem criar strings intermediárias. */
+    public static void anexar(StringBuilder destino, long centavos, boolean separarMilhar) {
+        if (centavos < 0) {
+            destino.append('-');
+        }
+        // Long.MIN_VALUE não tem positivo correspondente; trabalha com o valor negado em unsigned
+        long absoluto = centavos < 0 ? -centavos : centavos;
+        long reais = Long.divideUnsigned(absoluto, 100);
+        int resto = (int) Long.remainderUnsigned(absoluto, 100);
+
+        char[] digitos = new char[20];
+        int n = 0;
+        do {
+            digitos[n++] = (char) ('0' + Long.remainderUnsigned(reais, 10));
+            reais = Long.divideUnsigned(reais, 10);
+        } while (reais != 0);
+
+        for (int i = n - 1; i >= 0; i--) {
+            destino.append(digitos[i]);
+            if (separarMilhar && i > 0 && i % 3 == 0) {
+                destino.append('.');
+            }
+        }
+        destino.append(',');
+        destino.append((char) ('0' + resto / 10));
+        destino.append((char) ('0' + resto % 10));
+    }
+}
@@ -1,4 +1,5 @@
 import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Chunk;
 import com.itextpdf.text.Document;
 import com.itextpdf.text.DocumentException;
 import com.itextpdf.text.Element;
@@ -6,21 +7,139 @@ import com.itextpdf.text.Font;
 import com.itextpdf.text.PageSize;
 import com.itextpdf.text.Paragraph;
 import com.itextpdf.text.Phrase;
+import com.itextpdf.text.SplitCharacter;
+import com.itextpdf.text.pdf.DefaultSplitCharacter;
+import com.itextpdf.text.pdf.PdfChunk;
 import com.itextpdf.text.pdf.PdfPCell;
 import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
 
+import java.io.File;
 import java.io.FileOutputStream;
-import java.text.SimpleDateFormat;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * Relatório em PDF com uma seção por mês, em ordem cronológica.
+ *
+ * O relatório é gerado em fluxo: as linhas de cada mês são formatadas em blocos pelos threads
+ * de um pool, à frente do escritor, e cada bloco entra na tabela do mês como um fragmento
+ * ({@link PdfPTable#setComplete(boolean) incompleta}) que o iText grava e descarta em seguida.
+ * As linhas são lidas por coluna ({@link ArquivoTransacoes.Fonte}), sem criar um objeto
+ * {@link Transacao} por linha. Fora o índice de ordenação (um long por transação, 8 bytes), a
+ * memória usada não depende do número de linhas: no máximo alguns blocos formatados e as
+ * linhas de uma página.
+ *
+ * Fontes, cores e células de cabeçalho são criadas uma vez e compartilhadas entre relatórios
+ * (o iText só as lê); as células de dados usam a célula padrão da tabela como modelo.
+ */
 public class PDFExporter {
 
+    // Intervalo (em linhas) entre as verificações de cancelamento dentro de um mês
+    private static final int LINHAS_POR_VERIFICACAO = 256;
+    // Linhas formatadas por tarefa do pool; cada bloco vira um fragmento da tabela do mês
+    private static final int LINHAS_POR_BLOCO = 512;
+    // Blocos formatados à frente do escritor, por thread (limita a memória usada)
+    private static final int BLOCOS_POR_THREAD = 2;
+    private static final int COLUNAS = 5;
+    private static final int COLUNA_DESCRICAO = 1;
+    private static final int COLUNA_OBS = 4;
+
+    // Fases publicadas por JMX (financeiro:type=Exportacao): ordenação, formatação de cada
+    // bloco (nos threads do pool) e montagem das tabelas no documento, que inclui a gravação
+    private static final Metricas.Histograma TEMPO_TOTAL = Metricas.histograma("Exportacao", "pdf");
+    private static final Metricas.Histograma TEMPO_ORDENACAO = Metricas.histograma("Exportacao", "pdf.ordenacao");
+    private static final Metricas.Histograma TEMPO_FORMATACAO = Metricas.histograma("Exportacao", "pdf.formatacao");
+    private static final Metricas.Histograma TEMPO_ESCRITA = Metricas.histograma("Exportacao", "pdf.escrita");
+    private static final Metricas.Contador LINHAS = Metricas.contador("Exportacao", "pdf.linhas");
+
+    // Transações sem data vão para uma seção própria, depois dos meses
+    private static final int SEM_MES = Integer.MAX_VALUE;
+
+    private static final Font FONTE_TITULO = comFonteBase(new Font(Font.FontFamily.HELVETICA, 16, Font.BOLD));
+    private static final Font FONTE_CABECALHO = comFonteBase(new Font(Font.FontFamily.HELVETICA, 12, Font.BOLD));
+    private static final Font FONTE_CELULA = comFonteBase(new Font(Font.FontFamily.HELVETICA, 10));
+    private static final Font FONTE_RESUMO = comFonteBase(new Font(Font.FontFamily.HELVETICA, 12));
+    private static final BaseColor COR_CABECALHO = new BaseColor(220, 220, 220);
+
+    /**
+     * Mesmas quebras de linha do iText (espaços e hífens), sem a proteção de datas do
+     * {@link DefaultSplitCharacter}: ela converte o texto inteiro da linha em String e o
+     * percorre com uma expressão regular a cada caractere testado, o que respondia por metade
+     * da memória alocada na exportação. Só vale para as colunas de texto livre (descrição e
+     * observação), que concentram as quebras; cabeçalho, data, valor e pagamento ficam com a
+     * regra padrão.
+     */
+    private static final SplitCharacter QUEBRA_DE_LINHA = new DefaultSplitCharacter() {
+        @Override
+        public boolean isSplitCharacter(int start, int current, int end, char[] cc, PdfChunk[] ck) {
+            char c = getCurrentCharacter(current, cc, ck);
+            return c <= ' ' || c == '-' || c == '\u2010';
+        }
+    };
+
+    private static final PdfPCell[] CELULAS_CABECALHO = criarCabecalho();
+
+    private static final String[] MESES = {"Janeiro", "Fevereiro", "Março", "Abril", "Maio", "Junho",
+            "Julho", "Agosto", "Setembro", "Outubro", "Novembro", "Dezembro"};
+
+    /** Linhas consecutivas (na ordem cronológica) de um mesmo mês. */
+    private static final class Bloco {
+        final int epochMes;
+        final int inicio;
+        final int fim;
+        final boolean ultimoDoMes;
+
+        Bloco(int epochMes, int inicio, int fim, boolean ultimoDoMes) {
+            this.epochMes = epochMes;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.ultimoDoMes = ultimoDoMes;
+        }
+    }
+
+    /** Textos das células de um bloco e os totais das suas linhas, em centavos. */
+    private static final class BlocoFormatado {
+        final String[] celulas;
+        long entradas;
+        long saidas;
+
+        BlocoFormatado(int linhas) {
+            celulas = new String[linhas * COLUNAS];
+        }
+    }
+
     public static boolean exportar(List<Transacao> transacoes, String filePath) {
+        return exportar(ArquivoTransacoes.deLista(transacoes), filePath, Progresso.NENHUM);
+    }
+
+    /**
+     * Gera o relatório informando a página atual a {@code progresso}. Se o cancelamento for
+     * pedido, o arquivo parcial é apagado e é lançada {@link CancellationException}.
+     *
+     * @param linhas lidas por índice, mais de uma vez e por vários threads: a leitura precisa
+     *               ser segura entre threads (como a de {@link TransacaoDAO#buscarColunas})
+     */
+    public static boolean exportar(ArquivoTransacoes.Fonte linhas, String filePath, Progresso progresso) {
+        long inicio = System.nanoTime();
+        EventosJfr.ExportacaoPdf evento = new EventosJfr.ExportacaoPdf();
+        evento.begin();
         Document document = new Document(PageSize.A4.rotate());
+        boolean cancelado = false;
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        ExecutorService formatadores = Executors.newFixedThreadPool(threads, tarefa -> {
+            Thread thread = new Thread(tarefa, "ExportacaoPDF");
+            thread.setDaemon(true);
+            return thread;
+        });
 
         try {
             PdfWriter writer = PdfWriter.getInstance(document, new FileOutputStream(filePath));
@@ -29,111 +148,249 @@ public class PDFExporter {
             document.addAuthor("Sistema Financeiro");
             document.addCreator("Java Application");
 
-            Map<String, List<Transacao>> grouped = groupByMonthYear(transacoes);
+            long inicioOrdenacao = System.nanoTime();
+            long[] ordem = ordenarPorData(linhas);
+            List<Bloco> blocos = dividirEmBlocos(ordem);
+            TEMPO_ORDENACAO.registrarDesde(inicioOrdenacao);
+
+            ArrayDeque<Future<BlocoFormatado>> pendentes = new ArrayDeque<>();
+            int proximoBloco = 0;
+            PdfPTable table = null;
+            long income = 0, expense = 0;
+            int linhasEscritas = 0;
+
+            for (Bloco bloco : blocos) {
+                while (proximoBloco < blocos.size() && pendentes.size() < threads * BLOCOS_POR_THREAD) {
+                    Bloco proximo = blocos.get(proximoBloco++);
+                    pendentes.add(formatadores.submit(() -> formatar(linhas, ordem, proximo)));
+                }
+                BlocoFormatado formatado = aguardar(pendentes.poll());
 
-            for (Map.Entry<String, List<Transacao>> entry : grouped.entrySet()) {
-                addMonthSection(document, entry.getKey(), entry.getValue());
-                document.newPage();
+                long inicioEscrita = System.nanoTime();
+                if (table == null) {
+                    progresso.informar("Página " + writer.getPageNumber() + " - " + getMonthYearTitle(bloco.epochMes),
+                            linhasEscritas * 100 / ordem.length);
+                    table = iniciarSecao(document, bloco.epochMes);
+                    income = 0;
+                    expense = 0;
+                }
+
+                linhasEscritas = addTableData(table, formatado, linhasEscritas, progresso);
+                income += formatado.entradas;
+                expense += formatado.saidas;
+
+                if (bloco.ultimoDoMes) {
+                    table.setComplete(true);
+                    document.add(table);
+                    document.add(createSummary(income, expense));
+                    document.newPage();
+                    table = null;
+                } else {
+                    // Grava as linhas completas do fragmento e as libera da tabela
+                    document.add(table);
+                }
+                TEMPO_ESCRITA.registrarDesde(inicioEscrita);
+                LINHAS.somar(bloco.fim - bloco.inicio);
             }
 
+            // Cada mês termina com newPage(): a última página aberta fica vazia e não é gravada
+            evento.paginas = blocos.isEmpty() ? 0 : writer.getPageNumber() - 1;
+            document.close();
+            TEMPO_TOTAL.registrarDesde(inicio);
+            evento.sucesso = true;
             return true;
+        } catch (CancellationException e) {
+            cancelado = true;
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
         } finally {
+            formatadores.shutdownNow();
             if (document != null && document.isOpen()) {
                 document.close();
             }
+            if (cancelado) {
+                new File(filePath).delete();
+            }
+            evento.arquivo = filePath;
+            evento.linhas = linhas.tamanho();
+            evento.commit();
         }
     }
 
-    private static Map<String, List<Transacao>> groupByMonthYear(List<Transacao> transacoes) {
-        Map<String, List<Transacao>> map = new TreeMap<>();
-        SimpleDateFormat sdf = new SimpleDateFormat("MM/yyyy");
+    /**
+     * Índices das linhas em ordem de data (empate: ordem de entrada). Cada elemento guarda o
+     * epoch-day nos 32 bits altos e o índice nos baixos, para ordenar um long[] sem boxing.
+     * Só a coluna de datas é lida.
+     */
+    private static long[] ordenarPorData(ArquivoTransacoes.Fonte linhas) {
+        long[] ordem = new long[linhas.tamanho()];
+        for (int i = 0; i < ordem.length; i++) {
+            int dia = linhas.epochDay(i);
+            if (dia == Datas.SEM_DATA) {
+                dia = Integer.MAX_VALUE;
+            }
+            ordem[i] = ((long) dia << 32) | i;
+        }
+        Arrays.sort(ordem);
+        return ordem;
+    }
+
+    private static int dia(long chave) {
+        return (int) (chave >> 32);
+    }
 
-        for (Transacao t : transacoes) {
-            String key = sdf.format(t.getData());
-            map.computeIfAbsent(key, k -> new ArrayList<>()).add(t);
+    private static int indice(long chave) {
+        return (int) chave;
+    }
+
+    private static int epochMes(long chave) {
+        int dia = dia(chave);
+        return dia == Integer.MAX_VALUE ? SEM_MES : Datas.epochMes(dia);
+    }
+
+    private static List<Bloco> dividirEmBlocos(long[] ordem) {
+        List<Bloco> blocos = new ArrayList<>();
+        int inicio = 0;
+        while (inicio < ordem.length) {
+            int mes = epochMes(ordem[inicio]);
+            int fimDoMes = inicio + 1;
+            while (fimDoMes < ordem.length && epochMes(ordem[fimDoMes]) == mes) {
+                fimDoMes++;
+            }
+            for (int i = inicio; i < fimDoMes; i += LINHAS_POR_BLOCO) {
+                int fim = Math.min(i + LINHAS_POR_BLOCO, fimDoMes);
+                blocos.add(new Bloco(mes, i, fim, fim == fimDoMes));
+            }
+            inicio = fimDoMes;
         }
+        return blocos;
+    }
 
-        return map;
+    // Executado pelos threads do pool
+    private static BlocoFormatado formatar(ArquivoTransacoes.Fonte linhas, long[] ordem, Bloco bloco) {
+        long inicio = System.nanoTime();
+        BlocoFormatado formatado = new BlocoFormatado(bloco.fim - bloco.inicio);
+        StringBuilder valor = new StringBuilder(24);
+        // As linhas estão em ordem de data: o texto da data só muda quando o dia muda
+        int diaFormatado = Datas.SEM_DATA;
+        String data = "";
+        int celula = 0;
+        for (int i = bloco.inicio; i < bloco.fim; i++) {
+            int linha = indice(ordem[i]);
+            long centavos = linhas.centavos(linha);
+            int dia = dia(ordem[i]);
+            if (dia != diaFormatado && dia != Integer.MAX_VALUE) {
+                diaFormatado = dia;
+                data = Datas.formatar(dia);
+            }
+            valor.setLength(0);
+            Moeda.anexar(valor.append("R$ "), centavos, true);
+
+            // Chunk e PdfPCell não aceitam texto nulo
+            formatado.celulas[celula++] = dia == Integer.MAX_VALUE ? "" : data;
+            formatado.celulas[celula++] = textoOuVazio(linhas.descricao(linha));
+            formatado.celulas[celula++] = valor.toString();
+            formatado.celulas[celula++] = textoOuVazio(linhas.formaPagamento(linha));
+            formatado.celulas[celula++] = textoOuVazio(linhas.obs(linha));
+
+            if ("ENTRADA".equalsIgnoreCase(linhas.tipo(linha))) {
+                formatado.entradas += centavos;
+            } else {
+                formatado.saidas += centavos;
+            }
+        }
+        TEMPO_FORMATACAO.registrarDesde(inicio);
+        return formatado;
+    }
+
+    private static String textoOuVazio(String texto) {
+        return texto != null ? texto : "";
     }
 
-    private static void addMonthSection(Document document, String monthYear, List<Transacao> transacoes)
-            throws DocumentException {
+    private static BlocoFormatado aguardar(Future<BlocoFormatado> pendente) throws InterruptedIOException {
+        try {
+            return pendente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Exportação interrompida");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha ao formatar as transações", e.getCause());
+        }
+    }
 
-        Paragraph title = new Paragraph(getMonthYearTitle(monthYear),
-                new Font(Font.FontFamily.HELVETICA, 16, Font.BOLD));
+    // Título do mês e tabela vazia (só com o cabeçalho), que recebe as linhas em fragmentos
+    private static PdfPTable iniciarSecao(Document document, int epochMes) throws DocumentException {
+        Paragraph title = new Paragraph(getMonthYearTitle(epochMes), FONTE_TITULO);
         title.setAlignment(Element.ALIGN_CENTER);
         title.setSpacingAfter(20);
         document.add(title);
 
-        PdfPTable table = new PdfPTable(5);
+        PdfPTable table = new PdfPTable(COLUNAS);
         table.setWidthPercentage(100);
         table.setSpacingBefore(10);
+        table.setComplete(false);
+        // Com a tabela gravada aos pedaços, o cabeçalho se repete em cada página do mês
+        table.setHeaderRows(1);
 
-        addTableHeader(table);
-        addTableData(table, transacoes);
-        document.add(table);
-
-        document.add(createSummary(transacoes));
-    }
-
-    private static void addTableHeader(PdfPTable table) {
-        String[] headers = {"Data", "Descrição", "Valor", "Pagamento", "Obs"};
-        Font font = new Font(Font.FontFamily.HELVETICA, 12, Font.BOLD);
-
-        for (String header : headers) {
-            PdfPCell cell = new PdfPCell(new Phrase(header, font));
-            cell.setBackgroundColor(new BaseColor(220, 220, 220));
-            cell.setPadding(5);
+        // addCell copia a célula, então as do cabeçalho podem ser compartilhadas
+        for (PdfPCell cell : CELULAS_CABECALHO) {
             table.addCell(cell);
         }
+        return table;
+    }
+
+    // Font só com a família recria o BaseFont a cada trecho de texto; com o BaseFont já resolvido, não
+    private static Font comFonteBase(Font font) {
+        return new Font(font.getCalculatedBaseFont(false), font.getSize());
     }
 
-    private static void addTableData(PdfPTable table, List<Transacao> transacoes) {
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-        Font font = new Font(Font.FontFamily.HELVETICA, 10);
+    private static PdfPCell[] criarCabecalho() {
+        String[] headers = {"Data", "Descrição", "Valor", "Pagamento", "Obs"};
+        PdfPCell[] cells = new PdfPCell[headers.length];
 
-        for (Transacao t : transacoes) {
-            table.addCell(new Phrase(sdf.format(t.getData()), font));
-            table.addCell(new Phrase(t.getDescricao(), font));
-            table.addCell(new Phrase(String.format("R$ %.2f", t.getValor()), font));
-            table.addCell(new Phrase(t.getFormaPagamento(), font));
-            table.addCell(new Phrase(t.getObs() != null ? t.getObs() : "", font));
+        for (int i = 0; i < headers.length; i++) {
+            cells[i] = new PdfPCell(new Phrase(new Chunk(headers[i], FONTE_CABECALHO)));
+            cells[i].setBackgroundColor(COR_CABECALHO);
+            cells[i].setPadding(5);
         }
+        return cells;
     }
 
-    private static Paragraph createSummary(List<Transacao> transacoes) {
-        double income = 0, expense = 0;
-
-        for (Transacao t : transacoes) {
-            if ("ENTRADA".equalsIgnoreCase(t.getTipo())) {
-                income += t.getValor();
-            } else {
-                expense += t.getValor();
+    private static int addTableData(PdfPTable table, BlocoFormatado bloco, int linhasEscritas,
+                                    Progresso progresso) {
+        for (int celula = 0; celula < bloco.celulas.length; celula += COLUNAS) {
+            if (++linhasEscritas % LINHAS_POR_VERIFICACAO == 0 && progresso.isCancelado()) {
+                throw new CancellationException("Exportação cancelada");
+            }
+            for (int coluna = 0; coluna < COLUNAS; coluna++) {
+                Chunk texto = new Chunk(bloco.celulas[celula + coluna], FONTE_CELULA);
+                if (coluna == COLUNA_DESCRICAO || coluna == COLUNA_OBS) {
+                    texto.setSplitCharacter(QUEBRA_DE_LINHA);
+                }
+                table.addCell(new Phrase(texto));
             }
         }
+        return linhasEscritas;
+    }
 
+    private static Paragraph createSummary(long income, long expense) {
         Paragraph p = new Paragraph();
-        p.setFont(new Font(Font.FontFamily.HELVETICA, 12));
+        p.setFont(FONTE_RESUMO);
         p.add("Resumo:\n");
-        p.add(String.format("Entradas: R$ %.2f\n", income));
-        p.add(String.format("Saídas: R$ %.2f\n", expense));
-        p.add(String.format("Saldo: R$ %.2f", (income - expense)));
+        p.add("Entradas: " + Moeda.formatar(income) + "\n");
+        p.add("Saídas: " + Moeda.formatar(expense) + "\n");
+        p.add("Saldo: " + Moeda.formatar(income - expense));
         p.setSpacingBefore(15);
 
         return p;
     }
 
-    private static String getMonthYearTitle(String monthYear) {
-        String[] months = {"Janeiro", "Fevereiro", "Março", "Abril", "Maio", "Junho",
-                "Julho", "Agosto", "Setembro", "Outubro", "Novembro", "Dezembro"};
-
-        String[] parts = monthYear.split("/");
-        int month = Integer.parseInt(parts[0]);
-        int year = Integer.parseInt(parts[1]);
-
-        return months[month - 1] + " " + year;
+    private static String getMonthYearTitle(int epochMes) {
+        if (epochMes == SEM_MES) {
+            return "Sem data";
+        }
+        return MESES[Datas.mes(epochMes) - 1] + " " + Datas.ano(epochMes);
     }
 }
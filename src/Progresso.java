@@ -0,0 +1,24 @@
+/**
+ * Acompanhamento de uma operação demorada (importação, exportação). Quem executa a operação
+ * informa o andamento e consulta periodicamente se o usuário pediu o cancelamento; ao
+ * perceber o pedido, interrompe o trabalho com {@link java.util.concurrent.CancellationException}.
+ */
+public interface Progresso {
+
+    /** Para quem chama as operações sem precisar de acompanhamento. */
+    Progresso NENHUM = new Progresso() {
+        @Override
+        public void informar(String mensagem, int percentual) {
+        }
+
+        @Override
+        public boolean isCancelado() {
+            return false;
+        }
+    };
+
+    /** @param percentual de 0 a 100, ou -1 quando o total não é conhecido */
+    void informar(String mensagem, int percentual);
+
+    boolean isCancelado();
+}
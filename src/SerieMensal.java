@@ -0,0 +1,129 @@
+import java.util.Arrays;
+
+/**
+ * Entradas e saídas de cada mês em arrays primitivos indexados por {@link Datas#epochMes}
+ * (a posição i corresponde ao mês {@code base + i}). Os {@link AgregadosTransacoes} mantêm
+ * uma série em dia a cada inclusão, alteração ou exclusão, e o gráfico lê uma cópia dela:
+ * nada de percorrer as transações nem de mapas com chaves de texto.
+ *
+ * Os meses com movimento ficam entre {@link #primeiroMes()} e {@link #ultimoMes()}; no meio
+ * deles pode haver meses sem nenhuma transação ({@link #quantidade} zero).
+ */
+public class SerieMensal {
+
+    // Meses acrescentados de cada lado quando um mês cai fora dos arrays
+    private static final int FOLGA_MESES = 24;
+
+    private int base;
+    private long[] entradas = new long[0];
+    private long[] saidas = new long[0];
+    private int[] quantidades = new int[0];
+    // Intervalo de meses com movimento; vazio quando primeiro > ultimo
+    private int primeiro = Integer.MAX_VALUE;
+    private int ultimo = Integer.MIN_VALUE;
+
+    /** Soma uma transação ao mês ({@code quantidade} -1 e centavos negativos para retirar). */
+    void somar(int epochMes, boolean entrada, long centavos, int quantidade) {
+        garantir(epochMes);
+        int i = epochMes - base;
+        if (entrada) {
+            entradas[i] += centavos;
+        } else {
+            saidas[i] += centavos;
+        }
+        quantidades[i] += quantidade;
+
+        if (quantidades[i] > 0) {
+            primeiro = Math.min(primeiro, epochMes);
+            ultimo = Math.max(ultimo, epochMes);
+        } else {
+            while (primeiro <= ultimo && quantidades[primeiro - base] == 0) {
+                primeiro++;
+            }
+            while (ultimo >= primeiro && quantidades[ultimo - base] == 0) {
+                ultimo--;
+            }
+            if (primeiro > ultimo) {
+                primeiro = Integer.MAX_VALUE;
+                ultimo = Integer.MIN_VALUE;
+            }
+        }
+    }
+
+    private void garantir(int epochMes) {
+        if (quantidades.length == 0) {
+            base = epochMes - FOLGA_MESES;
+            entradas = new long[2 * FOLGA_MESES + 1];
+            saidas = new long[entradas.length];
+            quantidades = new int[entradas.length];
+            return;
+        }
+        int fim = base + quantidades.length;
+        if (epochMes >= base && epochMes < fim) {
+            return;
+        }
+        // Cresce pelo menos dobrando, para que uma sequência de meses novos custe cópias amortizadas
+        int folga = Math.max(FOLGA_MESES, quantidades.length);
+        int novaBase = Math.min(base, epochMes - folga);
+        int novoFim = Math.max(fim, epochMes + folga + 1);
+        int deslocamento = base - novaBase;
+
+        long[] novasEntradas = new long[novoFim - novaBase];
+        long[] novasSaidas = new long[novasEntradas.length];
+        int[] novasQuantidades = new int[novasEntradas.length];
+        System.arraycopy(entradas, 0, novasEntradas, deslocamento, entradas.length);
+        System.arraycopy(saidas, 0, novasSaidas, deslocamento, saidas.length);
+        System.arraycopy(quantidades, 0, novasQuantidades, deslocamento, quantidades.length);
+        entradas = novasEntradas;
+        saidas = novasSaidas;
+        quantidades = novasQuantidades;
+        base = novaBase;
+    }
+
+    /** Cópia só com os meses entre o primeiro e o último com movimento. */
+    public SerieMensal copia() {
+        SerieMensal copia = new SerieMensal();
+        if (!isVazia()) {
+            int inicio = primeiro - base;
+            int fim = ultimo - base + 1;
+            copia.base = primeiro;
+            copia.entradas = Arrays.copyOfRange(entradas, inicio, fim);
+            copia.saidas = Arrays.copyOfRange(saidas, inicio, fim);
+            copia.quantidades = Arrays.copyOfRange(quantidades, inicio, fim);
+            copia.primeiro = primeiro;
+            copia.ultimo = ultimo;
+        }
+        return copia;
+    }
+
+    public boolean isVazia() {
+        return primeiro > ultimo;
+    }
+
+    /** epochMes do primeiro mês com movimento (série não vazia). */
+    public int primeiroMes() {
+        return primeiro;
+    }
+
+    /** epochMes do último mês com movimento (série não vazia). */
+    public int ultimoMes() {
+        return ultimo;
+    }
+
+    public long entradas(int epochMes) {
+        return dentro(epochMes) ? entradas[epochMes - base] : 0;
+    }
+
+    public long saidas(int epochMes) {
+        return dentro(epochMes) ? saidas[epochMes - base] : 0;
+    }
+
+    /** Número de transações do mês. */
+    public int quantidade(int epochMes) {
+        return dentro(epochMes) ? quantidades[epochMes - base] : 0;
+    }
+
+    private boolean dentro(int epochMes) {
+        return epochMes >= base && epochMes - base < quantidades.length;
+    }
+}
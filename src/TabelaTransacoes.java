@@ -0,0 +1,312 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Armazenamento das transações do DAO, endereçadas por "slot" (posição fixa de cada linha).
+ *
+ * Os primeiros slots podem vir de um arquivo mapeado em memória (modo mapeado): nesse caso as
+ * colunas são lidas direto do buffer e o objeto Transacao só é criado quando alguém pede a linha.
+ * Linhas novas e linhas alteradas ficam no heap, por cima do arquivo. No modo em memória não há
+ * base mapeada e todas as linhas estão no heap.
+ *
+ * A tabela guarda as suas próprias cópias: {@link #adicionar} e {@link #substituir} copiam a
+ * transação recebida e {@link #obter} (e as visões) devolvem cópias, então alterar um objeto
+ * de fora nunca muda uma linha sem passar pelo DAO e pelos índices. Os objetos guardados nunca
+ * são alterados; uma alteração troca o objeto do slot.
+ *
+ * Os slots de uma tabela nunca mudam de número; uma exclusão só marca o slot. A compactação do
+ * DAO troca a tabela inteira por uma nova, só com as linhas vivas e os slots renumerados (no
+ * modo mapeado, sobre o snapshot recém-gravado; no modo em memória, por {@link #compactada()}).
+ */
+public class TabelaTransacoes {
+
+    private final ArquivoTransacoes.Leitor base;
+    private final int tamanhoBase;
+    private final Map<Integer, Transacao> substituidas = new HashMap<>();
+    private final ArrayList<Transacao> adicionadas;
+    private final BitSet excluidas = new BitSet();
+    private int vivas;
+
+    private TabelaTransacoes(ArquivoTransacoes.Leitor base, ArrayList<Transacao> adicionadas) {
+        this.base = base;
+        this.tamanhoBase = base != null ? base.tamanho() : 0;
+        this.adicionadas = adicionadas;
+        this.vivas = tamanhoBase + adicionadas.size();
+    }
+
+    /** Tabela sobre transações recém-lidas do disco, que passam a ser dela (não são copiadas). */
+    public static TabelaTransacoes emMemoria(List<Transacao> transacoes) {
+        return new TabelaTransacoes(null, new ArrayList<>(transacoes));
+    }
+
+    public static TabelaTransacoes mapeada(ArquivoTransacoes.Leitor leitor) {
+        return new TabelaTransacoes(leitor, new ArrayList<>());
+    }
+
+    public boolean isMapeada() {
+        return base != null;
+    }
+
+    /** Número de slots, incluindo os excluídos. */
+    public int tamanho() {
+        return tamanhoBase + adicionadas.size();
+    }
+
+    public int vivas() {
+        return vivas;
+    }
+
+    public boolean viva(int slot) {
+        return slot >= 0 && slot < tamanho() && !excluidas.get(slot);
+    }
+
+    /**
+     * Transação do slot, num objeto novo: alterá-lo não muda a tabela (use {@link #substituir}).
+     * Para linhas do arquivo mapeado o objeto é montado na hora.
+     */
+    public Transacao obter(int slot) {
+        Transacao t = linhaNoHeap(slot);
+        return t != null ? copiar(t) : base.transacao(slot);
+    }
+
+    private static Transacao copiar(Transacao original) {
+        Transacao copia = new Transacao();
+        copia.setId(original.getId());
+        copia.setData(original.getData() != null ? new Date(original.getData().getTime()) : null);
+        copia.setTipo(original.getTipo());
+        copia.setDescricao(original.getDescricao());
+        copia.setValorCentavos(original.getValorCentavos());
+        copia.setFormaPagamento(original.getFormaPagamento());
+        copia.setObs(original.getObs());
+        return copia;
+    }
+
+    // Acesso por coluna: evita materializar a Transacao quando a linha vem do arquivo mapeado
+
+    public int id(int slot) {
+        Transacao t = linhaNoHeap(slot);
+        return t != null ? t.getId() : base.id(slot);
+    }
+
+    public int epochDay(int slot) {
+        Transacao t = linhaNoHeap(slot);
+        return t != null ? Datas.paraEpochDay(t.getData()) : base.epochDay(slot);
+    }
+
+    public long centavos(int slot) {
+        Transacao t = linhaNoHeap(slot);
+        return t != null ? t.getValorCentavos() : base.centavos(slot);
+    }
+
+    public String tipo(int slot) {
+        Transacao t = linhaNoHeap(slot);
+        return t != null ? t.getTipo() : base.tipo(slot);
+    }
+
+    public String formaPagamento(int slot) {
+        Transacao t = linhaNoHeap(slot);
+        return t != null ? t.getFormaPagamento() : base.formaPagamento(slot);
+    }
+
+    public String descricao(int slot) {
+        Transacao t = linhaNoHeap(slot);
+        return t != null ? t.getDescricao() : base.descricao(slot);
+    }
+
+    public String obs(int slot) {
+        Transacao t = linhaNoHeap(slot);
+        return t != null ? t.getObs() : base.obs(slot);
+    }
+
+    private Transacao linhaNoHeap(int slot) {
+        if (slot >= tamanhoBase) {
+            return adicionadas.get(slot - tamanhoBase);
+        }
+        return substituidas.isEmpty() ? null : substituidas.get(slot);
+    }
+
+    // Alterações
+
+    public int adicionar(Transacao transacao) {
+        adicionadas.add(copiar(transacao));
+        vivas++;
+        return tamanho() - 1;
+    }
+
+    /** Prepara espaço para {@code quantidade} inclusões seguidas. */
+    public void reservar(int quantidade) {
+        adicionadas.ensureCapacity(adicionadas.size() + quantidade);
+    }
+
+    public void substituir(int slot, Transacao transacao) {
+        Transacao copia = copiar(transacao);
+        if (slot >= tamanhoBase) {
+            adicionadas.set(slot - tamanhoBase, copia);
+        } else {
+            substituidas.put(slot, copia);
+        }
+    }
+
+    public void remover(int slot) {
+        if (viva(slot)) {
+            excluidas.set(slot);
+            vivas--;
+        }
+    }
+
+    /** Desfaz {@link #remover}: o slot volta a ser uma linha viva. */
+    public void restaurar(int slot) {
+        if (slot >= 0 && slot < tamanho() && excluidas.get(slot)) {
+            excluidas.clear(slot);
+            vivas++;
+        }
+    }
+
+    /**
+     * Nova tabela em memória só com as linhas vivas, na ordem dos slots (o slot de cada uma
+     * passa a ser a sua posição). Os objetos são reaproveitados; a tabela atual não muda.
+     */
+    public TabelaTransacoes compactada() {
+        ArrayList<Transacao> linhas = new ArrayList<>(vivas);
+        for (int slot = excluidas.nextClearBit(0); slot < tamanho(); slot = excluidas.nextClearBit(slot + 1)) {
+            Transacao t = linhaNoHeap(slot);
+            linhas.add(t != null ? t : base.transacao(slot));
+        }
+        return new TabelaTransacoes(null, linhas);
+    }
+
+    // Visões
+
+    /** Slots vivos no momento da chamada, em ordem. */
+    public int[] slotsVivos() {
+        int[] slots = new int[vivas];
+        int n = 0;
+        for (int slot = excluidas.nextClearBit(0); slot < tamanho(); slot = excluidas.nextClearBit(slot + 1)) {
+            slots[n++] = slot;
+        }
+        return slots;
+    }
+
+    /**
+     * Lista somente leitura sobre os slots informados. As linhas são obtidas sob demanda por
+     * {@link #obter}, sem copiar a tabela inteira.
+     */
+    public List<Transacao> visao(int[] slots, int quantidade) {
+        return new Visao(slots, quantidade);
+    }
+
+    /** Visão de todas as linhas vivas. */
+    public List<Transacao> visao() {
+        if (vivas == tamanho()) {
+            return new Visao(null, vivas);
+        }
+        return new Visao(slotsVivos(), vivas);
+    }
+
+    /** Linhas vivas no formato esperado pelo gravador do transacoes.dat. */
+    public ArquivoTransacoes.Fonte comoFonte() {
+        int[] slots = slotsVivos();
+        return new ArquivoTransacoes.Fonte() {
+            public int tamanho() { return slots.length; }
+            public int id(int linha) { return TabelaTransacoes.this.id(slots[linha]); }
+            public int epochDay(int linha) { return TabelaTransacoes.this.epochDay(slots[linha]); }
+            public long centavos(int linha) { return TabelaTransacoes.this.centavos(slots[linha]); }
+            public String tipo(int linha) { return TabelaTransacoes.this.tipo(slots[linha]); }
+            public String formaPagamento(int linha) { return TabelaTransacoes.this.formaPagamento(slots[linha]); }
+            public String descricao(int linha) { return TabelaTransacoes.this.descricao(slots[linha]); }
+            public String obs(int linha) { return TabelaTransacoes.this.obs(slots[linha]); }
+        };
+    }
+
+    /**
+     * As colunas lidas direto da tabela, com linha = slot (inclusive slots excluídos, que
+     * continuam legíveis). Nada é copiado; serve para quem guarda só os slots, como a tabela da tela.
+     */
+    public ArquivoTransacoes.Fonte colunasPorSlot() {
+        return new ArquivoTransacoes.Fonte() {
+            public int tamanho() { return TabelaTransacoes.this.tamanho(); }
+            public int id(int slot) { return TabelaTransacoes.this.id(slot); }
+            public int epochDay(int slot) { return TabelaTransacoes.this.epochDay(slot); }
+            public long centavos(int slot) { return TabelaTransacoes.this.centavos(slot); }
+            public String tipo(int slot) { return TabelaTransacoes.this.tipo(slot); }
+            public String formaPagamento(int slot) { return TabelaTransacoes.this.formaPagamento(slot); }
+            public String descricao(int slot) { return TabelaTransacoes.this.descricao(slot); }
+            public String obs(int slot) { return TabelaTransacoes.this.obs(slot); }
+        };
+    }
+
+    /**
+     * As colunas das linhas dos slots informados (linha i = {@code slots[i]}), fixadas agora.
+     * Guarda as linhas do heap deste momento (que nunca são alteradas) e lê as demais do arquivo
+     * mapeado, que não muda: pode ser lida de qualquer thread, sem trava, e alterações
+     * posteriores na tabela não aparecem nela.
+     */
+    public ArquivoTransacoes.Fonte fixar(int[] slots) {
+        int[] fixos = slots.clone();
+        Transacao[] noHeap = new Transacao[fixos.length];
+        for (int i = 0; i < fixos.length; i++) {
+            noHeap[i] = linhaNoHeap(fixos[i]);
+        }
+        ArquivoTransacoes.Leitor arquivo = base;
+        return new ArquivoTransacoes.Fonte() {
+            public int tamanho() { return fixos.length; }
+            public int id(int linha) {
+                Transacao t = noHeap[linha];
+                return t != null ? t.getId() : arquivo.id(fixos[linha]);
+            }
+            public int epochDay(int linha) {
+                Transacao t = noHeap[linha];
+                return t != null ? Datas.paraEpochDay(t.getData()) : arquivo.epochDay(fixos[linha]);
+            }
+            public long centavos(int linha) {
+                Transacao t = noHeap[linha];
+                return t != null ? t.getValorCentavos() : arquivo.centavos(fixos[linha]);
+            }
+            public String tipo(int linha) {
+                Transacao t = noHeap[linha];
+                return t != null ? t.getTipo() : arquivo.tipo(fixos[linha]);
+            }
+            public String formaPagamento(int linha) {
+                Transacao t = noHeap[linha];
+                return t != null ? t.getFormaPagamento() : arquivo.formaPagamento(fixos[linha]);
+            }
+            public String descricao(int linha) {
+                Transacao t = noHeap[linha];
+                return t != null ? t.getDescricao() : arquivo.descricao(fixos[linha]);
+            }
+            public String obs(int linha) {
+                Transacao t = noHeap[linha];
+                return t != null ? t.getObs() : arquivo.obs(fixos[linha]);
+            }
+        };
+    }
+
+    private class Visao extends AbstractList<Transacao> implements RandomAccess {
+        private final int[] slots;
+        private final int quantidade;
+
+        Visao(int[] slots, int quantidade) {
+            this.slots = slots;
+            this.quantidade = quantidade;
+        }
+
+        @Override
+        public Transacao get(int indice) {
+            if (indice < 0 || indice >= quantidade) {
+                throw new IndexOutOfBoundsException("Índice: " + indice + ", tamanho: " + quantidade);
+            }
+            return obter(slots != null ? slots[indice] : indice);
+        }
+
+        @Override
+        public int size() {
+            return quantidade;
+        }
+    }
+}
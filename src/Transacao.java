@@ -1,14 +1,29 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Date;
 
 public class Transacao implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    // Layout serializado das versões antigas (valor em double), mantido para migrar o transacoes.dat legado
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", int.class),
+            new ObjectStreamField("data", Date.class),
+            new ObjectStreamField("tipo", String.class),
+            new ObjectStreamField("descricao", String.class),
+            new ObjectStreamField("valor", double.class),
+            new ObjectStreamField("formaPagamento", String.class),
+            new ObjectStreamField("obs", String.class)
+    };
+
     private int id;
     private Date data;
     private String tipo;
     private String descricao;
-    private double valor;
+    private long valorCentavos; // valor exato em centavos
     private String formaPagamento;
     private String obs; // 🆕 NOVO CAMPO
 
@@ -21,7 +36,7 @@ public class Transacao implements Serializable {
         this.data = data;
         this.tipo = tipo;
         this.descricao = descricao;
-        this.valor = valor;
+        this.valorCentavos = Moeda.deDouble(valor);
         this.formaPagamento = formaPagamento;
     }
 
@@ -38,8 +53,12 @@ public class Transacao implements Serializable {
     public String getDescricao() { return descricao; }
     public void setDescricao(String descricao) { this.descricao = descricao; }
 
-    public double getValor() { return valor; }
-    public void setValor(double valor) { this.valor = valor; }
+    public long getValorCentavos() { return valorCentavos; }
+    public void setValorCentavos(long valorCentavos) { this.valorCentavos = valorCentavos; }
+
+    // Conveniência para exibição e entrada; somas devem usar getValorCentavos
+    public double getValor() { return Moeda.paraDouble(valorCentavos); }
+    public void setValor(double valor) { this.valorCentavos = Moeda.deDouble(valor); }
 
     public String getFormaPagamento() { return formaPagamento; }
     public void setFormaPagamento(String formaPagamento) { this.formaPagamento = formaPagamento; }
@@ -54,9 +73,32 @@ public class Transacao implements Serializable {
                 ", data=" + data +
                 ", tipo='" + tipo + '\'' +
                 ", descricao='" + descricao + '\'' +
-                ", valor=" + valor +
+                ", valor=" + Moeda.formatar(valorCentavos) +
                 ", formaPagamento='" + formaPagamento + '\'' +
                 ", obs='" + obs + '\'' +
                 '}';
     }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField campos = in.readFields();
+        id = campos.get("id", 0);
+        data = (Date) campos.get("data", null);
+        tipo = (String) campos.get("tipo", null);
+        descricao = (String) campos.get("descricao", null);
+        valorCentavos = Moeda.deDouble(campos.get("valor", 0.0));
+        formaPagamento = (String) campos.get("formaPagamento", null);
+        obs = (String) campos.get("obs", null);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField campos = out.putFields();
+        campos.put("id", id);
+        campos.put("data", data);
+        campos.put("tipo", tipo);
+        campos.put("descricao", descricao);
+        campos.put("valor", getValor());
+        campos.put("formaPagamento", formaPagamento);
+        campos.put("obs", obs);
+        out.writeFields();
+    }
 }
@@ -1,136 +1,983 @@
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.text.SimpleDateFormat;
 
+/**
+ * Base de transações com índices por id, mês e texto. Todos os métodos públicos sincronizam no
+ * próprio DAO, então leituras em segundo plano (filtro da tabela, exportações) nunca veem um
+ * índice no meio de uma alteração. As listas de {@link #listarTodos} e {@code filtrarPor...}
+ * leem as linhas sob demanda e sem trava; para percorrer um resultado em outro thread enquanto
+ * a base muda use {@link #buscarSincronizado} ou {@link #fixarColunas}.
+ */
 public class TransacaoDAO {
-    private List<Transacao> transacoes;
+    // Migrações e falhas de leitura/gravação dos arquivos; o nível vem do log4j2.xml
+    private static final Logger LOG = LogManager.getLogger(TransacaoDAO.class);
+
+    private TabelaTransacoes tabela;
+    private IndiceInteiro slotPorId;
+    private IndiceMensal indiceMensal;
+    private AgregadosTransacoes agregados;
+    // Montado só na primeira busca por texto, em blocos de slots que seguram o monitor por
+    // poucos milissegundos cada; cobre os slots abaixo de textoIndexadoAte até ficar completo.
+    // As alterações só atualizam o índice nos slots já cobertos: os demais o bloco lê depois.
+    private final IndiceTexto indiceTexto = new IndiceTexto();
+    private int textoIndexadoAte;
+    private volatile boolean textoCompleto;
+    private static final int BLOCO_INDICE_TEXTO = 4096;
     private int proximoId = 1;
+    // Só muda sob o monitor do DAO; volatile para o EDT ler sem disputar a trava
+    private volatile long versao;
     private static final String ARQUIVO_DADOS = "transacoes.dat";
+    private static final String ARQUIVO_DIARIO = "transacoes.wal";
+    // O diário é compactado no snapshot quando passa desse número de registros
+    // ou do número de transações da base, o que for maior (custo amortizado constante)
+    private static final int LIMITE_MINIMO_COMPACTACAO = 10_000;
+
+    // "memoria" (padrão) ou "mapeado": no modo mapeado o transacoes.dat é aberto com
+    // FileChannel.map e cada linha só vira um objeto Transacao quando é lida
+    public static final String PROPRIEDADE_ARMAZENAMENTO = "financeiro.armazenamento";
+
+    // Tempos publicados por JMX (financeiro:type=DAO); a gravação inclui o diário ou o snapshot.
+    // Inclusão, alteração e exclusão levam poucos microssegundos e são medidas por amostragem
+    private static final int AMOSTRAGEM = 8;
+    private static final Metricas.Histograma TEMPO_CARREGAR = Metricas.histograma("DAO", "carregar");
+    private static final Metricas.Histograma TEMPO_SALVAR = Metricas.histograma("DAO", "salvar");
+    private static final Metricas.Histograma TEMPO_INSERIR = Metricas.histograma("DAO", "inserir", AMOSTRAGEM);
+    private static final Metricas.Histograma TEMPO_INSERIR_LOTE = Metricas.histograma("DAO", "inserirEmLote");
+    private static final Metricas.Histograma TEMPO_ATUALIZAR = Metricas.histograma("DAO", "atualizar", AMOSTRAGEM);
+    private static final Metricas.Histograma TEMPO_EXCLUIR = Metricas.histograma("DAO", "excluir", AMOSTRAGEM);
+    private static final Metricas.Histograma TEMPO_EXCLUIR_VARIOS = Metricas.histograma("DAO", "excluirVarios");
+    private static final Metricas.Histograma TEMPO_BUSCAR = Metricas.histograma("DAO", "buscar");
+    private static final Metricas.Contador ERROS_GRAVACAO = Metricas.contador("DAO", "errosGravacao");
+
+    private final boolean mapeado;
+    // Arquivo com o snapshot atual. No modo mapeado o transacoes.dat não pode ser substituído
+    // enquanto está mapeado (no Windows a troca falha), então cada gravação cria uma nova
+    // geração (transacoes.dat.1, .2, ...) e a tabela passa a mapeá-la; na abertura seguinte a
+    // geração mais nova volta a ser o transacoes.dat.
+    private Path arquivoAtual = Paths.get(ARQUIVO_DADOS);
+    private int geracao;
+    private DiarioTransacoes diario;
+    // Fecha o diário se a JVM terminar sem fechar(); retirado em fechar() para não prender o DAO
+    private Thread ganchoFechamento;
+    // Depois de fechar() uma montagem do índice de texto em andamento para no próximo bloco
+    private volatile boolean fechado;
 
     public TransacaoDAO() {
-        transacoes = carregarDados();
-        if (!transacoes.isEmpty()) {
-            proximoId = transacoes.stream().mapToInt(Transacao::getId).max().orElse(0) + 1;
+        this("mapeado".equalsIgnoreCase(System.getProperty(PROPRIEDADE_ARMAZENAMENTO)));
+    }
+
+    public TransacaoDAO(boolean mapeado) {
+        long inicio = TEMPO_CARREGAR.iniciar();
+        EventosJfr.Carregamento evento = new EventosJfr.Carregamento();
+        evento.begin();
+        this.mapeado = mapeado;
+        tabela = carregarDados();
+        indexar();
+        abrirDiario();
+        for (int slot = 0; slot < tabela.tamanho(); slot++) {
+            if (tabela.viva(slot)) {
+                proximoId = Math.max(proximoId, tabela.id(slot) + 1);
+            }
+        }
+        TEMPO_CARREGAR.registrarDesde(inicio);
+        if (evento.shouldCommit()) {
+            evento.transacoes = tabela.vivas();
+            evento.bytes = arquivoAtual.toFile().length();
+            evento.mapeado = mapeado;
+            evento.commit();
+        }
+    }
+
+    // Monta os índices lendo só as colunas necessárias (não materializa as linhas)
+    private void indexar() {
+        slotPorId = new IndiceInteiro(tabela.vivas());
+        indiceMensal = new IndiceMensal();
+        agregados = new AgregadosTransacoes();
+        for (int slot = 0; slot < tabela.tamanho(); slot++) {
+            if (tabela.viva(slot)) {
+                int dia = tabela.epochDay(slot);
+                slotPorId.colocar(tabela.id(slot), slot);
+                indiceMensal.adicionar(slot, dia);
+                agregados.adicionar(dia, tabela.tipo(slot), tabela.formaPagamento(slot), tabela.centavos(slot));
+            }
+        }
+    }
+
+    // Alterações na tabela passam por aqui para manter os índices em dia
+    private void adicionarLinha(Transacao transacao) {
+        versao++;
+        int slot = tabela.adicionar(transacao);
+        int dia = Datas.paraEpochDay(transacao.getData());
+        slotPorId.colocar(transacao.getId(), slot);
+        indiceMensal.adicionar(slot, dia);
+        agregados.adicionar(dia, transacao.getTipo(), transacao.getFormaPagamento(),
+                transacao.getValorCentavos());
+        if (textoIndexado(slot)) {
+            indiceTexto.adicionar(slot, transacao.getDescricao(), transacao.getObs());
+        }
+    }
+
+    private void substituirLinha(int slot, Transacao transacao) {
+        versao++;
+        int diaAnterior = tabela.epochDay(slot);
+        agregados.remover(diaAnterior, tabela.tipo(slot), tabela.formaPagamento(slot), tabela.centavos(slot));
+        if (textoIndexado(slot)) {
+            indiceTexto.remover(slot, tabela.descricao(slot), tabela.obs(slot));
+            indiceTexto.adicionar(slot, transacao.getDescricao(), transacao.getObs());
+        }
+        tabela.substituir(slot, transacao);
+
+        int dia = Datas.paraEpochDay(transacao.getData());
+        indiceMensal.mover(slot, diaAnterior, dia);
+        agregados.adicionar(dia, transacao.getTipo(), transacao.getFormaPagamento(),
+                transacao.getValorCentavos());
+    }
+
+    // Devolve false se o id não existe
+    private boolean removerLinha(int id) {
+        int slot = slotPorId.remover(id);
+        if (slot == IndiceInteiro.AUSENTE) {
+            return false;
+        }
+        versao++;
+        int dia = tabela.epochDay(slot);
+        indiceMensal.remover(slot, dia);
+        agregados.remover(dia, tabela.tipo(slot), tabela.formaPagamento(slot), tabela.centavos(slot));
+        if (textoIndexado(slot)) {
+            indiceTexto.remover(slot, tabela.descricao(slot), tabela.obs(slot));
+        }
+        tabela.remover(slot);
+        return true;
+    }
+
+    // Desfaz removerLinha quando a gravação falha (o slot volta com o mesmo número)
+    private void restaurarLinha(int slot) {
+        versao++;
+        tabela.restaurar(slot);
+        int dia = tabela.epochDay(slot);
+        slotPorId.colocar(tabela.id(slot), slot);
+        indiceMensal.adicionar(slot, dia);
+        agregados.adicionar(dia, tabela.tipo(slot), tabela.formaPagamento(slot), tabela.centavos(slot));
+        if (textoIndexado(slot)) {
+            indiceTexto.adicionar(slot, tabela.descricao(slot), tabela.obs(slot));
         }
     }
 
     // CRUD: Create, Read, Update, Delete
-    public synchronized void inserir(Transacao transacao) {
-        transacao.setId(proximoId++);
-        transacoes.add(transacao);
-        salvarDados();
+    // A alteração vai primeiro para o diário e só então entra na memória; se a gravação falhar
+    // a base fica como estava e o erro chega a quem chamou.
+
+    /** @throws IOException se a gravação falhar; a transação não é incluída e mantém o id anterior */
+    public synchronized void inserir(Transacao transacao) throws IOException {
+        long inicio = TEMPO_INSERIR.iniciar();
+        EventosJfr.Alteracao evento = new EventosJfr.Alteracao();
+        evento.begin();
+        int idAnterior = transacao.getId();
+        transacao.setId(proximoId);
+        try {
+            registrarNoDiario(DiarioTransacoes.OP_INSERIR, transacao, transacao.getId());
+        } catch (IOException e) {
+            transacao.setId(idAnterior);
+            throw e;
+        }
+        proximoId++;
+        adicionarLinha(transacao);
+        persistir(() -> {
+            removerLinha(transacao.getId());
+            proximoId--;
+            transacao.setId(idAnterior);
+        });
+        TEMPO_INSERIR.registrarDesde(inicio);
+        evento.operacao = "inserir";
+        evento.quantidade = 1;
+        evento.commit();
+    }
+
+    /**
+     * Insere todas as transações ou nenhuma. Os ids são atribuídos em um bloco contínuo, os
+     * índices crescem uma única vez e a gravação acontece uma vez só (um registro no diário,
+     * ou um snapshot quando não há diário).
+     *
+     * @return quantidade de transações inseridas
+     * @throws IOException se a gravação falhar; nesse caso nada é inserido e os ids das
+     *                     transações voltam ao que eram antes da chamada
+     */
+    public synchronized int inserirEmLote(Collection<Transacao> transacoes) throws IOException {
+        long inicio = TEMPO_INSERIR_LOTE.iniciar();
+        EventosJfr.Alteracao evento = new EventosJfr.Alteracao();
+        evento.begin();
+        try {
+            evento.quantidade = inserirLote(transacoes);
+            return evento.quantidade;
+        } finally {
+            TEMPO_INSERIR_LOTE.registrarDesde(inicio);
+            evento.operacao = "inserirEmLote";
+            evento.commit();
+        }
+    }
+
+    private int inserirLote(Collection<Transacao> transacoes) throws IOException {
+        Transacao[] lote = transacoes.toArray(new Transacao[0]);
+        for (Transacao transacao : lote) {
+            if (transacao == null) {
+                throw new IllegalArgumentException("Lote contém transação nula");
+            }
+        }
+        if (lote.length == 0) {
+            return 0;
+        }
+
+        int primeiroId = proximoId;
+        int[] idsAnteriores = new int[lote.length];
+        for (int i = 0; i < lote.length; i++) {
+            idsAnteriores[i] = lote[i].getId();
+            lote[i].setId(primeiroId + i);
+        }
+
+        // Com diário, o registro vai primeiro para o disco (write-ahead)
+        if (diario != null) {
+            try {
+                diario.registrarLote(lote);
+            } catch (IOException e) {
+                ERROS_GRAVACAO.incrementar();
+                restaurarIds(lote, idsAnteriores);
+                throw e;
+            }
+        }
+
+        proximoId = primeiroId + lote.length;
+        tabela.reservar(lote.length);
+        slotPorId.reservar(slotPorId.tamanho() + lote.length);
+        for (Transacao transacao : lote) {
+            adicionarLinha(transacao);
+        }
+
+        persistir(() -> {
+            for (Transacao transacao : lote) {
+                removerLinha(transacao.getId());
+            }
+            proximoId = primeiroId;
+            restaurarIds(lote, idsAnteriores);
+        });
+        return lote.length;
     }
 
-    public List<Transacao> listarTodos() {
-        return new ArrayList<>(transacoes);
+    private static void restaurarIds(Transacao[] lote, int[] ids) {
+        for (int i = 0; i < lote.length; i++) {
+            lote[i].setId(ids[i]);
+        }
+    }
+
+    /** Visão somente leitura das transações; no modo mapeado as linhas são lidas sob demanda. */
+    public synchronized List<Transacao> listarTodos() {
+        return tabela.visao();
     }
 
-    public Transacao buscarPorId(int id) {
-        return transacoes.stream()
-                .filter(t -> t.getId() == id)
-                .findFirst()
-                .orElse(null);
+    /**
+     * Cópia da transação: quem edita o objeto devolvido e depois chama {@link #atualizar}
+     * não altera a linha guardada antes da hora (os índices precisam dos valores antigos).
+     */
+    public synchronized Transacao buscarPorId(int id) {
+        int slot = slotPorId.obter(id);
+        return slot != IndiceInteiro.AUSENTE ? tabela.obter(slot) : null;
+    }
+
+    /** @throws IOException se a gravação falhar; a transação guardada não muda */
+    public synchronized void atualizar(Transacao transacaoAtualizada) throws IOException {
+        long inicio = TEMPO_ATUALIZAR.iniciar();
+        EventosJfr.Alteracao evento = new EventosJfr.Alteracao();
+        evento.begin();
+        int slot = slotPorId.obter(transacaoAtualizada.getId());
+        if (slot != IndiceInteiro.AUSENTE) {
+            registrarNoDiario(DiarioTransacoes.OP_ATUALIZAR, transacaoAtualizada, transacaoAtualizada.getId());
+            Transacao anterior = tabela.obter(slot);
+            substituirLinha(slot, transacaoAtualizada);
+            persistir(() -> substituirLinha(slot, anterior));
+            evento.quantidade = 1;
+        }
+        TEMPO_ATUALIZAR.registrarDesde(inicio);
+        evento.operacao = "atualizar";
+        evento.commit();
     }
 
-    public synchronized void atualizar(Transacao transacaoAtualizada) {
-        for (int i = 0; i < transacoes.size(); i++) {
-            Transacao t = transacoes.get(i);
-            if (t.getId() == transacaoAtualizada.getId()) {
-                transacoes.set(i, transacaoAtualizada);
-                salvarDados();
-                break;
+    /** @throws IOException se a gravação falhar; a transação continua na base */
+    public synchronized void excluir(int id) throws IOException {
+        long inicio = TEMPO_EXCLUIR.iniciar();
+        EventosJfr.Alteracao evento = new EventosJfr.Alteracao();
+        evento.begin();
+        int slot = slotPorId.obter(id);
+        if (slot != IndiceInteiro.AUSENTE) {
+            registrarNoDiario(DiarioTransacoes.OP_EXCLUIR, null, id);
+            removerLinha(id);
+            persistir(() -> restaurarLinha(slot));
+            evento.quantidade = 1;
+        }
+        TEMPO_EXCLUIR.registrarDesde(inicio);
+        evento.operacao = "excluir";
+        evento.commit();
+    }
+
+    /**
+     * Exclui várias transações de uma vez, com um único registro no diário.
+     * Ids inexistentes são ignorados; devolve quantas foram de fato excluídas.
+     *
+     * @throws IOException se a gravação falhar; nenhuma transação é excluída
+     */
+    public synchronized int excluirVarios(int[] ids) throws IOException {
+        long inicio = TEMPO_EXCLUIR_VARIOS.iniciar();
+        EventosJfr.Alteracao evento = new EventosJfr.Alteracao();
+        evento.begin();
+        int[] excluidos = new int[ids.length];
+        int[] slots = new int[ids.length];
+        BitSet escolhidos = new BitSet();
+        int quantidade = 0;
+        for (int id : ids) {
+            int slot = slotPorId.obter(id);
+            if (slot != IndiceInteiro.AUSENTE && !escolhidos.get(slot)) {
+                escolhidos.set(slot);
+                excluidos[quantidade] = id;
+                slots[quantidade++] = slot;
+            }
+        }
+
+        if (quantidade > 0) {
+            if (diario != null) {
+                try {
+                    diario.registrarExclusoes(excluidos, quantidade);
+                } catch (IOException e) {
+                    ERROS_GRAVACAO.incrementar();
+                    throw e;
+                }
+            }
+            for (int i = 0; i < quantidade; i++) {
+                removerLinha(excluidos[i]);
             }
+            int removidos = quantidade;
+            persistir(() -> {
+                for (int i = 0; i < removidos; i++) {
+                    restaurarLinha(slots[i]);
+                }
+            });
         }
+        TEMPO_EXCLUIR_VARIOS.registrarDesde(inicio);
+        evento.operacao = "excluirVarios";
+        evento.quantidade = quantidade;
+        evento.commit();
+        return quantidade;
     }
 
-    public synchronized void excluir(int id) {
-        transacoes.removeIf(t -> t.getId() == id);
-        salvarDados();
+    /** Garante que o diário foi sincronizado com o disco e libera o arquivo. */
+    public synchronized void fechar() {
+        fechado = true;
+        if (diario != null) {
+            diario.fechar();
+            diario = null;
+        }
+        if (ganchoFechamento != null && Thread.currentThread() != ganchoFechamento) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(ganchoFechamento);
+            } catch (IllegalStateException e) {
+                // JVM já está terminando: o gancho roda (ou já rodou) de qualquer forma
+            }
+            ganchoFechamento = null;
+        }
     }
 
     // Métodos de persistência
-    @SuppressWarnings("unchecked")
-    private List<Transacao> carregarDados() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(ARQUIVO_DADOS))) {
-            return (List<Transacao>) ois.readObject();
-        } catch (FileNotFoundException e) {
-            return new ArrayList<>(); // Arquivo não existe ainda
-        } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Erro ao carregar dados: " + e.getMessage());
-            return new ArrayList<>();
+    private TabelaTransacoes carregarDados() {
+        promoverGeracao();
+        Path arquivo = arquivoAtual;
+        if (!Files.exists(arquivo)) {
+            return TabelaTransacoes.emMemoria(new ArrayList<>()); // Arquivo não existe ainda
+        }
+
+        try {
+            if (!ArquivoTransacoes.ehFormatoBinario(arquivo)) {
+                List<Transacao> migradas = migrarFormatoLegado(arquivo);
+                if (!mapeado || !ArquivoTransacoes.ehFormatoBinario(arquivo)) {
+                    return TabelaTransacoes.emMemoria(migradas);
+                }
+            }
+            if (mapeado) {
+                return TabelaTransacoes.mapeada(mapearFormatoBinario(arquivo));
+            }
+            return TabelaTransacoes.emMemoria(lerFormatoBinario(arquivo));
+        } catch (IOException e) {
+            LOG.error("Erro ao carregar {}: {}", arquivo, e.getMessage());
+            return TabelaTransacoes.emMemoria(new ArrayList<>());
+        }
+    }
+
+    // O mapeamento continua válido depois que o canal é fechado
+    private ArquivoTransacoes.Leitor mapearFormatoBinario(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            return new ArquivoTransacoes.Leitor(buffer);
+        }
+    }
+
+    private List<Transacao> lerFormatoBinario(Path arquivo) throws IOException {
+        ArquivoTransacoes.Leitor leitor = new ArquivoTransacoes.Leitor(ByteBuffer.wrap(Files.readAllBytes(arquivo)));
+        List<Transacao> lidas = new ArrayList<>(leitor.tamanho());
+        for (int i = 0; i < leitor.tamanho(); i++) {
+            lidas.add(leitor.transacao(i));
+        }
+        return lidas;
+    }
+
+    // Converte o transacoes.dat antigo (serialização Java) para o formato binário,
+    // mantendo uma cópia do original em transacoes.dat.legado
+    private List<Transacao> migrarFormatoLegado(Path arquivo) throws IOException {
+        List<Transacao> lidas = ArquivoTransacoes.lerLegado(arquivo);
+        Files.copy(arquivo, Paths.get(ARQUIVO_DADOS + ".legado"), StandardCopyOption.REPLACE_EXISTING);
+
+        if (salvarDados(ArquivoTransacoes.deLista(lidas))) {
+            LOG.info("{} migrado para o formato binário ({} transações); original em {}.legado",
+                    ARQUIVO_DADOS, lidas.size(), ARQUIVO_DADOS);
+        }
+        return lidas;
+    }
+
+    // Grava o snapshot completo em um arquivo temporário e o troca de forma atômica,
+    // para que uma queda no meio da gravação não corrompa a base
+    private boolean salvarDados(ArquivoTransacoes.Fonte fonte) {
+        long inicio = TEMPO_SALVAR.iniciar();
+        EventosJfr.Gravacao evento = new EventosJfr.Gravacao();
+        evento.begin();
+        boolean salvo = gravarSnapshot(fonte);
+        if (salvo) {
+            TEMPO_SALVAR.registrarDesde(inicio);
         }
+        if (evento.shouldCommit()) {
+            evento.transacoes = fonte.tamanho();
+            evento.bytes = salvo ? arquivoAtual.toFile().length() : 0;
+            evento.sucesso = salvo;
+            evento.commit();
+        }
+        return salvo;
     }
 
-    private void salvarDados() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(ARQUIVO_DADOS))) {
-            oos.writeObject(transacoes);
+    private boolean gravarSnapshot(ArquivoTransacoes.Fonte fonte) {
+        boolean novaGeracao = tabela != null && tabela.isMapeada();
+        Path destino = novaGeracao ? arquivoDaGeracao(geracao + 1) : Paths.get(ARQUIVO_DADOS);
+        Path temporario = Paths.get(ARQUIVO_DADOS + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temporario.toFile()), 1 << 16)) {
+            ArquivoTransacoes.escrever(out, fonte);
+        } catch (IOException e) {
+            ERROS_GRAVACAO.incrementar();
+            LOG.error("Erro ao salvar {}: {}", destino, e.getMessage());
+            return false;
+        }
+
+        try {
+            try {
+                Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (IOException e) {
-            System.err.println("Erro ao salvar dados: " + e.getMessage());
+            ERROS_GRAVACAO.incrementar();
+            LOG.error("Erro ao salvar {}: {}", destino, e.getMessage());
+            return false;
         }
+
+        arquivoAtual = destino;
+        if (novaGeracao) {
+            geracao++;
+            remapear(fonte.tamanho());
+            apagarGeracoes(geracao);
+        } else {
+            // Uma geração que tenha sobrado seria promovida por cima deste snapshot na próxima abertura
+            geracao = 0;
+            apagarGeracoes(Integer.MAX_VALUE);
+            // As linhas excluídas saem também da memória, como no modo mapeado
+            if (tabela != null && tabela.vivas() < tabela.tamanho()) {
+                trocarTabela(tabela.compactada());
+            }
+        }
+        return true;
     }
 
-    // Métodos auxiliares para cálculos
-    public double calcularTotalPorTipo(String tipo) {
-        return transacoes.stream()
-                .filter(t -> t.getTipo().equalsIgnoreCase(tipo))
-                .mapToDouble(Transacao::getValor)
-                .sum();
+    private static Path arquivoDaGeracao(int numero) {
+        return Paths.get(ARQUIVO_DADOS + "." + numero);
     }
 
-    public double calcularTotalPorTipoEMes(String tipo, int mes) {
-        return transacoes.stream()
-                .filter(t -> t.getTipo().equalsIgnoreCase(tipo))
-                .filter(t -> {
-                    Calendar cal = Calendar.getInstance();
-                    cal.setTime(t.getData());
-                    return (cal.get(Calendar.MONTH) + 1) == mes;
-                })
-                .mapToDouble(Transacao::getValor)
-                .sum();
+    // Gerações existentes (transacoes.dat.N), em ordem crescente de número
+    private static TreeMap<Integer, Path> listarGeracoes() {
+        TreeMap<Integer, Path> geracoes = new TreeMap<>();
+        Path pasta = Paths.get(ARQUIVO_DADOS).toAbsolutePath().getParent();
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(pasta, ARQUIVO_DADOS + ".*")) {
+            for (Path arquivo : arquivos) {
+                String sufixo = arquivo.getFileName().toString().substring(ARQUIVO_DADOS.length() + 1);
+                if (!sufixo.isEmpty() && sufixo.chars().allMatch(Character::isDigit) && sufixo.length() < 10) {
+                    geracoes.put(Integer.parseInt(sufixo), arquivo);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Erro ao listar gerações de {}: {}", ARQUIVO_DADOS, e.getMessage());
+        }
+        return geracoes;
     }
 
-    // Filtro por intervalo de datas
-    public List<Transacao> filtrarPorData(Date inicio, Date fim) {
-        List<Transacao> resultado = new ArrayList<>();
-        for (Transacao t : transacoes) {
-            if (!t.getData().before(inicio) && !t.getData().after(fim)) {
-                resultado.add(t);
+    // A sessão anterior (modo mapeado) pode ter terminado com o snapshot mais novo em uma
+    // geração: ela volta a ser o transacoes.dat, que agora não está mapeado por ninguém
+    private void promoverGeracao() {
+        TreeMap<Integer, Path> geracoes = listarGeracoes();
+        if (geracoes.isEmpty()) {
+            return;
+        }
+        Map.Entry<Integer, Path> maisNova = geracoes.lastEntry();
+        Path destino = Paths.get(ARQUIVO_DADOS);
+        try {
+            try {
+                Files.move(maisNova.getValue(), destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(maisNova.getValue(), destino, StandardCopyOption.REPLACE_EXISTING);
             }
+            LOG.info("{} promovido a {}", maisNova.getValue().getFileName(), ARQUIVO_DADOS);
+            apagarGeracoes(Integer.MAX_VALUE);
+        } catch (IOException e) {
+            // Continua lendo a geração; a promoção é tentada de novo na próxima abertura
+            LOG.warn("Erro ao promover {}: {}", maisNova.getValue(), e.getMessage());
+            arquivoAtual = maisNova.getValue();
+            geracao = maisNova.getKey();
+            apagarGeracoes(geracao);
         }
-        return resultado;
     }
 
-    // Filtro por forma de pagamento
-    public List<Transacao> filtrarPorFormaPagamento(String formaPagamento) {
-        List<Transacao> resultado = new ArrayList<>();
-        for (Transacao t : transacoes) {
-            if (t.getFormaPagamento().equalsIgnoreCase(formaPagamento)) {
-                resultado.add(t);
+    // Gerações com número menor que o limite. No Windows uma geração ainda mapeada (até o
+    // coletor liberar o buffer antigo) não pode ser apagada; fica para a próxima gravação ou abertura.
+    private static void apagarGeracoes(int limite) {
+        for (Map.Entry<Integer, Path> antiga : listarGeracoes().headMap(limite).entrySet()) {
+            try {
+                Files.deleteIfExists(antiga.getValue());
+            } catch (IOException e) {
+                // Ainda em uso
             }
         }
-        return resultado;
     }
 
-    // Exportar dados para CSV
-    public void exportarParaCSV(String nomeArquivo) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(nomeArquivo))) {
-            writer.println("ID,Data,Tipo,Descrição,Valor,FormaPagamento");
-            SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
+    // Troca a tabela mapeada pela do snapshot recém-gravado: as linhas do heap voltam a ser
+    // lidas do arquivo. A tabela anterior continua mapeada enquanto houver referência a ela.
+    private void remapear(int linhas) {
+        TabelaTransacoes nova;
+        try {
+            nova = TabelaTransacoes.mapeada(mapearFormatoBinario(arquivoAtual));
+        } catch (IOException e) {
+            // Os dados estão no disco; a tabela atual continua válida, só sem liberar o heap
+            LOG.warn("Erro ao mapear {}: {}", arquivoAtual, e.getMessage());
+            return;
+        }
+        if (nova.tamanho() != linhas) {
+            LOG.warn("Snapshot {} com {} linhas, esperadas {}", arquivoAtual, nova.tamanho(), linhas);
+            return;
+        }
+        trocarTabela(nova);
+    }
 
-            for (Transacao t : transacoes) {
-                String linha = String.format("%d,%s,%s,%s,%.2f,%s",
-                        t.getId(),
-                        sdf.format(t.getData()),
-                        t.getTipo(),
-                        t.getDescricao().replace(",", " "),
-                        t.getValor(),
-                        t.getFormaPagamento());
-                writer.println(linha);
+    // Troca a tabela por outra com só as linhas vivas da atual, na mesma ordem, e renumera os
+    // índices. Quem guardou slots da tabela anterior precisa buscá-los de novo (a versão muda).
+    private void trocarTabela(TabelaTransacoes nova) {
+        int[] vivos = tabela.slotsVivos();
+        int[] novoSlot = new int[tabela.tamanho()];
+        int indexadosAte = 0;
+        for (int i = 0; i < vivos.length; i++) {
+            novoSlot[vivos[i]] = i;
+            if (vivos[i] < textoIndexadoAte) {
+                indexadosAte = i + 1;
+            }
+        }
+        tabela = nova;
+        indexar();
+        // A renumeração preserva a ordem, então a parte já indexada continua sendo um prefixo
+        indiceTexto.renumerar(novoSlot);
+        if (!textoCompleto) {
+            textoIndexadoAte = indexadosAte;
+        }
+        versao++;
+    }
+
+    // Métodos do diário (write-ahead log)
+    private void abrirDiario() {
+        try {
+            diario = new DiarioTransacoes(ARQUIVO_DIARIO);
+            reaplicarDiario();
+            ganchoFechamento = new Thread(this::fechar, "fechar-diario-transacoes");
+            Runtime.getRuntime().addShutdownHook(ganchoFechamento);
+        } catch (IOException e) {
+            LOG.error("Erro ao abrir {}, gravando o snapshot a cada alteração: {}", ARQUIVO_DIARIO, e.getMessage());
+            if (diario != null) {
+                diario.fechar();
             }
+            diario = null;
+        }
+    }
+
+    // Reaplica sobre o snapshot as alterações registradas depois da última compactação.
+    // Inserções e atualizações são tratadas como "gravar", então reaplicar um registro
+    // que já está no snapshot (queda entre a compactação e a limpeza do diário) não duplica nada.
+    private void reaplicarDiario() throws IOException {
+        diario.reaplicar(new DiarioTransacoes.Reaplicador() {
+            @Override
+            public void gravar(Transacao transacao) {
+                int slot = slotPorId.obter(transacao.getId());
+                if (slot != IndiceInteiro.AUSENTE) {
+                    substituirLinha(slot, transacao);
+                } else {
+                    adicionarLinha(transacao);
+                }
+            }
+
+            @Override
+            public void excluir(int id) {
+                removerLinha(id);
+            }
+        });
+    }
+
+    // Anexa a operação ao diário antes de ela entrar na memória (sem diário não faz nada:
+    // persistir grava o snapshot depois)
+    private void registrarNoDiario(byte operacao, Transacao transacao, int id) throws IOException {
+        if (diario == null) {
+            return;
+        }
+
+        try {
+            switch (operacao) {
+                case DiarioTransacoes.OP_INSERIR:
+                    diario.registrarInsercao(transacao);
+                    break;
+                case DiarioTransacoes.OP_ATUALIZAR:
+                    diario.registrarAtualizacao(transacao);
+                    break;
+                default:
+                    diario.registrarExclusao(id);
+                    break;
+            }
+        } catch (IOException e) {
+            ERROS_GRAVACAO.incrementar();
+            throw e;
+        }
+    }
+
+    // Depois da alteração em memória: com diário, só compacta se for a hora (o registro já está
+    // no disco); sem diário grava o snapshot e, se falhar, desfaz a alteração e avisa quem chamou
+    private void persistir(Runnable desfazer) throws IOException {
+        if (diario != null) {
+            compactarSeNecessario();
+        } else if (!salvarDados(tabela.comoFonte())) {
+            desfazer.run();
+            throw new IOException("Não foi possível gravar " + ARQUIVO_DADOS);
+        }
+    }
+
+    private void compactarSeNecessario() {
+        if (diario.getRegistros() >= Math.max(LIMITE_MINIMO_COMPACTACAO, tabela.vivas())) {
+            compactar();
+        }
+    }
+
+    // Grava o snapshot com o estado atual e descarta o diário já incorporado
+    private void compactar() {
+        if (!salvarDados(tabela.comoFonte())) {
+            return;
+        }
+        try {
+            diario.limpar();
+        } catch (IOException e) {
+            LOG.warn("Erro ao limpar {}: {}", ARQUIVO_DIARIO, e.getMessage());
+        }
+    }
+
+    // Métodos auxiliares para cálculos (respondidos pelos totais acumulados, sem percorrer as transações)
+    public synchronized double calcularTotalPorTipo(String tipo) {
+        return agregados.totalPorTipo(tipo, null) / 100.0;
+    }
+
+    public synchronized double calcularTotalPorTipoEMes(String tipo, int mes) {
+        return agregados.totalPorTipo(tipo, mes) / 100.0;
+    }
+
+    /** Entradas, saídas e saldo do período ({@code mes} nulo e {@code ano} -1 significam "todos"). */
+    public synchronized AgregadosTransacoes.Resumo calcularResumo(Integer mes, int ano) {
+        return agregados.resumo(mes, ano);
+    }
+
+    /** Total em centavos de cada forma de pagamento no período. */
+    public synchronized Map<String, Long> calcularTotaisPorFormaPagamento(Integer mes, int ano) {
+        return agregados.totaisPorFormaPagamento(mes, ano);
+    }
+
+    /** Entradas e saídas de cada mês com movimento, em ordem cronológica (chave = Datas.epochMes). */
+    public synchronized Map<Integer, AgregadosTransacoes.Resumo> calcularResumoPorMes() {
+        return agregados.resumoPorMes();
+    }
+
+    /**
+     * Entradas e saídas por mês, copiadas dos totais acumulados (não percorre as transações).
+     * Com {@link #getVersao()} quem exibe a série sabe quando precisa buscá-la de novo.
+     */
+    public synchronized SerieMensal calcularSerieMensal() {
+        return agregados.serieMensal();
+    }
+
+    // Filtro por intervalo de datas (dias inteiros, inclusive)
+    public synchronized List<Transacao> filtrarPorData(Date inicio, Date fim) {
+        int diaInicio = Datas.paraEpochDay(inicio);
+        int diaFim = Datas.paraEpochDay(fim);
+        Map<Integer, ListaInt> meses = indiceMensal.intervalo(Datas.epochMes(diaInicio), Datas.epochMes(diaFim));
+
+        int total = 0;
+        for (ListaInt slots : meses.values()) {
+            total += slots.tamanho();
+        }
+        int[] resultado = new int[total];
+        int n = 0;
+        for (ListaInt slots : meses.values()) {
+            for (int i = 0; i < slots.tamanho(); i++) {
+                int slot = slots.get(i);
+                int dia = tabela.epochDay(slot);
+                if (dia >= diaInicio && dia <= diaFim) {
+                    resultado[n++] = slot;
+                }
+            }
+        }
+        Arrays.sort(resultado, 0, n);
+        return tabela.visao(resultado, n);
+    }
+
+    /**
+     * Transações do mês e/ou ano informados, na ordem em que foram incluídas.
+     * {@code mes} nulo e {@code ano} -1 significam "todos", como nos filtros da tela.
+     */
+    public synchronized List<Transacao> filtrarPorMesEAno(Integer mes, int ano) {
+        int[] slots = slotsPorMesEAno(mes, ano);
+        return tabela.visao(slots, slots.length);
+    }
+
+    /**
+     * Slots (posições na tabela) das transações do mês e/ou ano, em ordem; junto com
+     * {@link #colunasPorSlot()} permite ler os campos sem montar objetos Transacao.
+     */
+    public synchronized int[] slotsPorMesEAno(Integer mes, int ano) {
+        if (mes == null && ano == -1) {
+            return tabela.slotsVivos();
+        }
+
+        Collection<ListaInt> selecionados;
+        if (ano != -1 && mes != null) {
+            ListaInt balde = indiceMensal.balde(Datas.epochMes(ano, mes));
+            return balde != null ? balde.paraArray() : new int[0];
+        } else if (ano != -1) {
+            selecionados = indiceMensal.intervalo(Datas.epochMes(ano, 1), Datas.epochMes(ano, 12)).values();
+        } else {
+            selecionados = new ArrayList<>();
+            for (Map.Entry<Integer, ListaInt> entrada : indiceMensal.baldes().entrySet()) {
+                if (Datas.mes(entrada.getKey()) == mes) {
+                    selecionados.add(entrada.getValue());
+                }
+            }
+        }
+
+        int total = 0;
+        for (ListaInt balde : selecionados) {
+            total += balde.tamanho();
+        }
+        int[] slots = new int[total];
+        int n = 0;
+        for (ListaInt balde : selecionados) {
+            n = balde.copiarPara(slots, n);
+        }
+        if (selecionados.size() > 1) {
+            Arrays.sort(slots);
+        }
+        return slots;
+    }
+
+    /**
+     * Slots do mês e/ou ano cuja descrição ou observação contém todas as palavras da busca
+     * (como prefixos, sem diferenciar acentos nem maiúsculas), em ordem. Busca nula ou em branco
+     * equivale a {@link #slotsPorMesEAno} e não monta o índice de texto.
+     */
+    public synchronized int[] buscarSlots(String busca, Integer mes, int ano) {
+        long inicio = TEMPO_BUSCAR.iniciar();
+        try {
+            BitSet encontrados = semBusca(busca) ? null : indiceTexto().buscar(busca);
+            if (encontrados == null) {
+                return slotsPorMesEAno(mes, ano);
+            }
+
+            if (mes == null && ano == -1) {
+                return encontrados.stream().toArray();
+            }
+            int[] slots = slotsPorMesEAno(mes, ano);
+            int n = 0;
+            for (int slot : slots) {
+                if (encontrados.get(slot)) {
+                    slots[n++] = slot;
+                }
+            }
+            return Arrays.copyOf(slots, n);
+        } finally {
+            TEMPO_BUSCAR.registrarDesde(inicio);
+        }
+    }
+
+    private static boolean semBusca(String busca) {
+        return busca == null || busca.isBlank();
+    }
+
+    /** Transações de {@link #buscarSlots}, como visão somente leitura. */
+    public List<Transacao> buscar(String busca, Integer mes, int ano) {
+        if (!semBusca(busca)) {
+            montarIndiceTexto();
+        }
+        synchronized (this) {
+            int[] slots = buscarSlots(busca, mes, ano);
+            return tabela.visao(slots, slots.length);
+        }
+    }
+
+    /**
+     * Como {@link #buscar}, mas cada {@code get} sincroniza no DAO: outro thread (uma
+     * exportação, por exemplo) pode percorrer o resultado sem copiar as linhas enquanto a base
+     * continua sendo alterada. Uma linha alterada no meio da leitura aparece com os valores
+     * novos; uma excluída continua sendo lida como estava.
+     */
+    public List<Transacao> buscarSincronizado(String busca, Integer mes, int ano) {
+        List<Transacao> visao = buscar(busca, mes, ano);
+        class VisaoSincronizada extends AbstractList<Transacao> implements RandomAccess {
+            @Override
+            public Transacao get(int indice) {
+                synchronized (TransacaoDAO.this) {
+                    return visao.get(indice);
+                }
+            }
+
+            @Override
+            public int size() {
+                return visao.size();
+            }
+        }
+        return new VisaoSincronizada();
+    }
+
+    /**
+     * Como {@link #buscar}, mas devolve as colunas das linhas encontradas fixadas nesta versão
+     * ({@link #fixarColunas}): podem ser lidas por vários threads sem travar o DAO e sem criar
+     * um objeto {@link Transacao} por linha.
+     */
+    public ArquivoTransacoes.Fonte buscarColunas(String busca, Integer mes, int ano) {
+        if (!semBusca(busca)) {
+            montarIndiceTexto();
+        }
+        synchronized (this) {
+            return tabela.fixar(buscarSlots(busca, mes, ano));
+        }
+    }
+
+    /** Entradas, saídas e saldo de um conjunto de slots (ex.: resultado de {@link #buscarSlots}). */
+    public synchronized AgregadosTransacoes.Resumo calcularResumo(int[] slots) {
+        return agregados.resumo(tabela.colunasPorSlot(), slots);
+    }
+
+    /**
+     * Termina de montar o índice de texto, um bloco de slots por vez, sem segurar o monitor
+     * entre os blocos. Quem vai buscar por texto fora do EDT chama antes de travar o DAO para
+     * que {@link #buscarSlots} não monte o restante com o monitor preso. Para se o DAO for
+     * fechado no meio.
+     */
+    public void montarIndiceTexto() {
+        while (!textoCompleto && !fechado) {
+            indexarBlocoTexto();
+        }
+    }
+
+    private synchronized void indexarBlocoTexto() {
+        if (textoCompleto) {
+            return;
+        }
+        int fim = Math.min(tabela.tamanho(), textoIndexadoAte + BLOCO_INDICE_TEXTO);
+        for (int slot = textoIndexadoAte; slot < fim; slot++) {
+            if (tabela.viva(slot)) {
+                indiceTexto.adicionar(slot, tabela.descricao(slot), tabela.obs(slot));
+            }
+        }
+        textoIndexadoAte = fim;
+        textoCompleto = fim == tabela.tamanho();
+    }
+
+    private boolean textoIndexado(int slot) {
+        return textoCompleto || slot < textoIndexadoAte;
+    }
+
+    // Chamado com o monitor: se a montagem ainda não terminou, completa aqui mesmo
+    private IndiceTexto indiceTexto() {
+        while (!textoCompleto) {
+            indexarBlocoTexto();
+        }
+        return indiceTexto;
+    }
+
+    /**
+     * Contador de alterações: muda a cada inserção, edição ou exclusão. Slots calculados em
+     * uma versão só continuam válidos enquanto ela não mudar. Não trava o DAO: o filtro e o
+     * gráfico consultam a versão no EDT enquanto um worker pode estar com o monitor.
+     */
+    public long getVersao() {
+        return versao;
+    }
+
+    /**
+     * Leitura dos campos por slot; os slots vêm de {@link #slotsPorMesEAno}. Lê a tabela atual
+     * sem trava: serve ao thread que altera a base ou a quem segura o monitor do DAO. Para
+     * guardar o resultado e lê-lo em outro thread use {@link #fixarColunas}.
+     */
+    public synchronized ArquivoTransacoes.Fonte colunasPorSlot() {
+        return tabela.colunasPorSlot();
+    }
+
+    /**
+     * Colunas das transações dos slots informados (linha i = {@code slots[i]}), fixadas na
+     * versão atual. A leitura não trava o DAO e não muda com alterações posteriores: é o que a
+     * tabela da tela guarda entre duas recargas ({@link #getVersao()} diz quando recarregar).
+     */
+    public synchronized ArquivoTransacoes.Fonte fixarColunas(int[] slots) {
+        return tabela.fixar(slots);
+    }
+
+    // Filtro por forma de pagamento
+    public synchronized List<Transacao> filtrarPorFormaPagamento(String formaPagamento) {
+        int[] slots = new int[tabela.vivas()];
+        int n = 0;
+        for (int slot = 0; slot < tabela.tamanho(); slot++) {
+            if (tabela.viva(slot) && formaPagamento.equalsIgnoreCase(tabela.formaPagamento(slot))) {
+                slots[n++] = slot;
+            }
+        }
+        return tabela.visao(slots, n);
+    }
 
-            System.out.println("Exportado com sucesso para " + nomeArquivo);
+    /** Exporta todas as transações para CSV (veja {@link CSVExporter} para o formato). */
+    public synchronized void exportarParaCSV(String nomeArquivo) {
+        try {
+            CSVExporter.exportar(tabela.colunasPorSlot(), tabela.slotsVivos(), new File(nomeArquivo),
+                    Progresso.NENHUM);
+            LOG.info("Exportado com sucesso para {}", nomeArquivo);
         } catch (IOException e) {
-            System.err.println("Erro ao exportar CSV: " + e.getMessage());
+            LOG.error("Erro ao exportar CSV para {}: {}", nomeArquivo, e.getMessage());
         }
     }
 }